@@ -0,0 +1,80 @@
+package org.example.bench;
+
+import ch.qos.logback.classic.Level;
+import org.example.DatabaseManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Random;
+
+/**
+ * Base de datos H2 en memoria para los benchmarks, con items y ofertas de prueba.
+ * No necesita PostgreSQL ni red, así que los resultados son reproducibles offline.
+ */
+final class BenchDatabase {
+    static final int ITEMS = 200;
+    static final int OFFERS_PER_ITEM = 50;
+
+    private BenchDatabase() { }
+
+    static void start() {
+        // Sin logging de DEBUG en cada llamada a los servicios
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+
+        String url = "jdbc:h2:mem:bench" + System.nanoTime()
+                + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+        DatabaseManager.init(url, "sa", "");
+        seed();
+    }
+
+    static void stop() {
+        DatabaseManager.close();
+    }
+
+    static String itemId(int i) {
+        return "bench-" + i;
+    }
+
+    private static void seed() {
+        Random random = new Random(42);
+
+        try (Connection conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement items = conn.prepareStatement(
+                    "INSERT INTO items (id, name, description, price_amount, price_currency) VALUES (?, ?, ?, ?, ?)")) {
+                for (int i = 0; i < ITEMS; i++) {
+                    items.setString(1, itemId(i));
+                    items.setString(2, "Artículo de prueba " + i);
+                    items.setString(3, "Descripción del artículo de prueba número " + i);
+                    items.setBigDecimal(4, BigDecimal.valueOf(10_000 + random.nextInt(90_000), 2));
+                    items.setString(5, "USD");
+                    items.addBatch();
+                }
+                items.executeBatch();
+            }
+
+            try (PreparedStatement offers = conn.prepareStatement(
+                    "INSERT INTO offers (name, email, item_id, amount) VALUES (?, ?, ?, ?)")) {
+                for (int i = 0; i < ITEMS; i++) {
+                    for (int j = 0; j < OFFERS_PER_ITEM; j++) {
+                        offers.setString(1, "Postor " + j);
+                        offers.setString(2, "postor" + j + "@example.com");
+                        offers.setString(3, itemId(i));
+                        offers.setDouble(4, 100 + random.nextInt(100_000) / 100.0);
+                        offers.addBatch();
+                    }
+                }
+                offers.executeBatch();
+            }
+
+            conn.commit();
+        } catch (SQLException e) {
+            throw new IllegalStateException("No se pudieron cargar los datos de prueba", e);
+        }
+    }
+}
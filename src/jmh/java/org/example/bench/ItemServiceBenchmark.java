@@ -0,0 +1,57 @@
+package org.example.bench;
+
+import org.example.Item;
+import org.example.ItemCache;
+import org.example.ItemService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ItemService con la caché activa y sin ella (cada llamada va a H2)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ItemServiceBenchmark {
+    private ItemService cached;
+    private ItemService uncached;
+    private String itemId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchDatabase.start();
+        cached = new ItemService(new ItemCache(10_000, 60_000));
+        uncached = new ItemService(new ItemCache(0, 0));
+        itemId = BenchDatabase.itemId(BenchDatabase.ITEMS / 2);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchDatabase.stop();
+    }
+
+    @Benchmark
+    public Item getCached() {
+        return cached.get(itemId);
+    }
+
+    @Benchmark
+    public Item getUncached() {
+        return uncached.get(itemId);
+    }
+
+    @Benchmark
+    public Collection<Item> getAllCached() {
+        return cached.getAll();
+    }
+
+    @Benchmark
+    public Collection<Item> getAllUncached() {
+        return uncached.getAll();
+    }
+}
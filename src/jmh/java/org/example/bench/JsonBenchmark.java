@@ -0,0 +1,80 @@
+package org.example.bench;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import org.example.Item;
+import org.example.JsonAdapters;
+import org.example.Offer;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialización de listados con los TypeAdapters escritos a mano frente a Gson por reflexión
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonBenchmark {
+    private static final Type ITEM_LIST = new TypeToken<List<Item>>() { }.getType();
+    private static final Type OFFER_LIST = new TypeToken<List<Offer>>() { }.getType();
+
+    @Param({"100", "1000"})
+    public int size;
+
+    private final Gson adapters = JsonAdapters.GSON;
+    private final Gson reflective = new Gson();
+
+    private List<Item> items;
+    private List<Offer> offers;
+    private String offerJson;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        items = new ArrayList<>(size);
+        offers = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            items.add(new Item("item" + i, "Artículo " + i, "Descripción del artículo " + i, "$" + i + ".99 USD"));
+            Offer offer = new Offer("item" + (i % 7), "Postor " + i, "postor" + i + "@example.com", 100 + i * 0.5);
+            offer.setDbId((long) i);
+            offers.add(offer);
+        }
+        offerJson = adapters.toJson(offers.get(size / 2));
+    }
+
+    @Benchmark
+    public String itemsAdapters() {
+        return adapters.toJson(items, ITEM_LIST);
+    }
+
+    @Benchmark
+    public String itemsReflective() {
+        return reflective.toJson(items, ITEM_LIST);
+    }
+
+    @Benchmark
+    public String offersAdapters() {
+        return adapters.toJson(offers, OFFER_LIST);
+    }
+
+    @Benchmark
+    public String offersReflective() {
+        return reflective.toJson(offers, OFFER_LIST);
+    }
+
+    @Benchmark
+    public Offer parseOfferAdapters() {
+        return adapters.fromJson(offerJson, Offer.class);
+    }
+
+    @Benchmark
+    public Offer parseOfferReflective() {
+        return reflective.fromJson(offerJson, Offer.class);
+    }
+}
@@ -0,0 +1,107 @@
+package org.example.bench;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Prueba de carga contra un servidor en marcha: N clientes concurrentes piden la URL
+ * durante D segundos y se reportan peticiones/s, p50/p99 y errores.
+ * Sirve para comparar SERVER_THREADS=platform con SERVER_THREADS=virtual.
+ *
+ * <pre>
+ * java -cp target/Reto6-1.0-SNAPSHOT-benchmarks.jar org.example.bench.LoadTest \
+ *     http://localhost:55603/items/item1 500 30
+ * </pre>
+ */
+public class LoadTest {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Uso: LoadTest <url> [clientes=200] [segundos=20]");
+            System.exit(2);
+        }
+        URI uri = URI.create(args[0]);
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+        HttpClient http = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(30)).GET().build();
+
+        AtomicLong errors = new AtomicLong();
+        List<long[]> latencies = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+
+        for (int i = 0; i < clients; i++) {
+            LatencyLog log = new LatencyLog();
+            Thread thread = new Thread(() -> {
+                while (System.nanoTime() < deadline) {
+                    long start = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() >= 400) {
+                            errors.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    }
+                    log.add(System.nanoTime() - start);
+                }
+                synchronized (latencies) {
+                    latencies.add(log.toArray());
+                }
+            }, "load-" + i);
+            thread.setDaemon(true);
+            threads.add(thread);
+        }
+
+        System.out.printf("%s: %d clientes durante %d s%n", uri, clients, seconds);
+        long started = System.nanoTime();
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double elapsed = (System.nanoTime() - started) / 1e9;
+
+        long[] all = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        System.out.printf("peticiones: %d (%.0f req/s), errores: %d%n", all.length, all.length / elapsed, errors.get());
+        System.out.printf("latencia p50: %.1f ms, p99: %.1f ms, máx: %.1f ms%n",
+                percentile(all, 0.50), percentile(all, 0.99), all.length > 0 ? all[all.length - 1] / 1e6 : 0.0);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    /**
+     * Latencias de un cliente, sin sincronización mientras corre
+     */
+    private static final class LatencyLog {
+        private long[] values = new long[1024];
+        private int size;
+
+        void add(long nanos) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = nanos;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
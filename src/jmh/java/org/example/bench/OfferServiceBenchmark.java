@@ -0,0 +1,50 @@
+package org.example.bench;
+
+import org.example.Offer;
+import org.example.OfferService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lecturas de ofertas por item tal como las hace la vista /items/:id
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OfferServiceBenchmark {
+    private OfferService offerService;
+    private String itemId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchDatabase.start();
+        offerService = new OfferService();
+        offerService.warmUp();
+        itemId = BenchDatabase.itemId(BenchDatabase.ITEMS / 2);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchDatabase.stop();
+    }
+
+    @Benchmark
+    public List<Offer> getByItemId() {
+        return offerService.getByItemId(itemId);
+    }
+
+    @Benchmark
+    public Offer getHighestOffer() {
+        return offerService.getHighestOffer(itemId);
+    }
+
+    @Benchmark
+    public int countByItemId() {
+        return offerService.countByItemId(itemId);
+    }
+}
@@ -0,0 +1,78 @@
+package org.example.bench;
+
+import org.example.Item;
+import org.example.StaticAssets;
+import org.example.Views;
+import org.openjdk.jmh.annotations.*;
+import spark.ModelAndView;
+import spark.template.mustache.MustacheTemplateEngine;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renderizado de las vistas Mustache de listado y detalle de items:
+ * motor de Spark (resuelve la plantilla en cada render) frente a Views (precompiladas)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TemplateBenchmark {
+    private MustacheTemplateEngine engine;
+    private Views views;
+    private Map<String, Object> listModel;
+    private Map<String, Object> detailModel;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        engine = new MustacheTemplateEngine();
+        views = new Views(StaticAssets.load("public"));
+
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            items.add(new Item("item" + i, "Artículo " + i, "Descripción del artículo " + i, "$" + i + ".99 USD"));
+        }
+        listModel = new HashMap<>();
+        listModel.put("items", items);
+
+        detailModel = new HashMap<>();
+        detailModel.put("id", "item1");
+        detailModel.put("name", "Gorra autografiada por Peso Pluma");
+        detailModel.put("description", "Una gorra autografiada por el famoso Peso Pluma.");
+        detailModel.put("price", "$621.34 USD");
+        detailModel.put("offerCount", 12);
+        detailModel.put("highestOffer", 980.5);
+    }
+
+    @Benchmark
+    public String itemsList() {
+        return engine.render(new ModelAndView(listModel, "items-list.mustache"));
+    }
+
+    @Benchmark
+    public String itemDetail() {
+        return engine.render(new ModelAndView(detailModel, "item-detail.mustache"));
+    }
+
+    @Benchmark
+    public String itemsListPrecompiled() throws IOException {
+        StringWriter out = new StringWriter();
+        views.itemsList.execute(out, listModel).flush();
+        return out.toString();
+    }
+
+    @Benchmark
+    public String itemDetailPrecompiled() throws IOException {
+        StringWriter out = new StringWriter();
+        views.itemDetail.execute(out, detailModel).flush();
+        return out.toString();
+    }
+}
@@ -0,0 +1,326 @@
+package org.example;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import spark.Request;
+import spark.Response;
+
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletRequestWrapper;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PushbackReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Importación masiva desde un arreglo JSON o NDJSON (un objeto por línea).
+ * El cuerpo se lee de forma incremental; los registros se escriben por bloques
+ * de CHUNK_SIZE con addBatch en una transacción por bloque, y la respuesta
+ * lleva un resultado por registro en el mismo orden de entrada.
+ */
+public final class BulkImport<T> {
+    private static final Logger logger = LoggerFactory.getLogger(BulkImport.class);
+
+    public static final int CHUNK_SIZE = chunkSizeFromEnv();
+
+    private final String label;
+    private final TypeAdapter<T> adapter;
+    private final Function<T, String> validator;
+    private final Function<T, String> keyOf;
+    private final ChunkWriter<T> writer;
+
+    /**
+     * Escribe un bloque de registros válidos en una transacción; un resultado por registro, en orden
+     */
+    @FunctionalInterface
+    public interface ChunkWriter<T> {
+        List<Result> write(List<T> chunk);
+    }
+
+    /**
+     * Resultado de un registro: created, conflict, invalid o failed.
+     * id es siempre la clave de entrada (keyOf) sea cual sea el resultado;
+     * dbId, el id generado por la base de datos, solo en los creados que lo tienen.
+     */
+    public static final class Result {
+        public static final String CREATED = "created";
+        public static final String CONFLICT = "conflict";
+        public static final String INVALID = "invalid";
+        public static final String FAILED = "failed";
+
+        private final String id;
+        private final Long dbId;
+        private final String status;
+        private final String message;
+
+        private Result(String id, Long dbId, String status, String message) {
+            this.id = id;
+            this.dbId = dbId;
+            this.status = status;
+            this.message = message;
+        }
+
+        public static Result created(String id) { return new Result(id, null, CREATED, null); }
+        public static Result created(String id, Long dbId) { return new Result(id, dbId, CREATED, null); }
+        public static Result conflict(String id, String message) { return new Result(id, null, CONFLICT, message); }
+        public static Result invalid(String id, String message) { return new Result(id, null, INVALID, message); }
+        public static Result failed(String id, String message) { return new Result(id, null, FAILED, message); }
+
+        public String getId() { return id; }
+        public Long getDbId() { return dbId; }
+        public String getStatus() { return status; }
+        public String getMessage() { return message; }
+    }
+
+    /**
+     * @param validator devuelve un mensaje de error o null si el registro es válido
+     * @param keyOf     identificador de entrada que se muestra en todos los resultados
+     */
+    public BulkImport(String label, TypeAdapter<T> adapter, Function<T, String> validator,
+                      Function<T, String> keyOf, ChunkWriter<T> writer) {
+        this.label = label;
+        this.adapter = adapter;
+        this.validator = validator;
+        this.keyOf = keyOf;
+        this.writer = writer;
+    }
+
+    /**
+     * Atiende una petición de importación y escribe los resultados en la respuesta
+     */
+    public String handle(Request req, Response res, JsonResponses json) throws IOException {
+        PushbackReader body = new PushbackReader(
+                new InputStreamReader(rawRequest(req).getInputStream(), StandardCharsets.UTF_8), 1);
+
+        int first = firstSignificantChar(body);
+        if (first != '[' && first != '{') {
+            res.status(400);
+            return json.send(res, new Main.Message("Expected a JSON array or NDJSON body"));
+        }
+        body.unread(first);
+
+        return json.send(res, out -> run(body, first == '[', out));
+    }
+
+    /**
+     * Lee los registros, los escribe por bloques y va emitiendo los resultados
+     */
+    void run(Reader body, boolean array, JsonWriter out) throws IOException {
+        Progress progress = new Progress(out);
+        long start = System.currentTimeMillis();
+
+        out.beginObject();
+        out.name("results");
+        out.beginArray();
+
+        String error = null;
+        if (array) {
+            JsonReader reader = new JsonReader(body);
+            try {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    JsonElement element = JsonParser.parseReader(reader);
+                    progress.accept(element);
+                }
+                reader.endArray();
+            } catch (JsonParseException | IOException e) {
+                // Un arreglo mal formado no permite seguir leyendo: se corta tras lo ya importado
+                error = "Malformed JSON after record " + progress.index + ": " + e.getMessage();
+            }
+        } else {
+            BufferedReader reader = new BufferedReader(body);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                JsonElement element;
+                try {
+                    element = JsonParser.parseString(line);
+                } catch (JsonParseException e) {
+                    progress.reject(null, "Invalid JSON: " + e.getMessage());
+                    continue;
+                }
+                progress.accept(element);
+            }
+        }
+        progress.flush();
+
+        out.endArray();
+        out.name("created").value(progress.created);
+        out.name("conflicts").value(progress.conflicts);
+        out.name("invalid").value(progress.invalid);
+        out.name("failed").value(progress.failed);
+        if (error != null) {
+            out.name("error").value(error);
+        }
+        out.endObject();
+
+        logger.info("📦 Importación de {}: {} creados, {} conflictos, {} inválidos, {} fallidos en {} ms",
+                label, progress.created, progress.conflicts, progress.invalid, progress.failed,
+                System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Bloque pendiente de escribir; los resultados se emiten en el orden de entrada
+     */
+    private final class Progress {
+        private final JsonWriter out;
+        private final List<T> records = new ArrayList<>(CHUNK_SIZE);
+        // Resultado ya decidido (registro inválido) o null si el registro va al lote
+        private final List<Result> decided = new ArrayList<>(CHUNK_SIZE);
+        private int index;
+        private int chunkStart;
+        private int created;
+        private int conflicts;
+        private int invalid;
+        private int failed;
+
+        Progress(JsonWriter out) {
+            this.out = out;
+        }
+
+        void accept(JsonElement element) throws IOException {
+            T record;
+            try {
+                record = adapter.fromJsonTree(element);
+            } catch (JsonParseException e) {
+                reject(null, e.getMessage());
+                return;
+            }
+
+            String problem;
+            try {
+                problem = record == null ? "Empty record" : validator.apply(record);
+            } catch (IllegalArgumentException e) {
+                problem = e.getMessage();
+            }
+            if (problem != null) {
+                reject(record != null ? keyOf.apply(record) : null, problem);
+                return;
+            }
+
+            add(record, null);
+        }
+
+        void reject(String key, String message) throws IOException {
+            add(null, Result.invalid(key, message));
+        }
+
+        private void add(T record, Result result) throws IOException {
+            records.add(record);
+            decided.add(result);
+            index++;
+            if (records.size() >= CHUNK_SIZE) {
+                flush();
+            }
+        }
+
+        void flush() throws IOException {
+            if (records.isEmpty()) {
+                return;
+            }
+
+            List<T> valid = new ArrayList<>(records.size());
+            for (int i = 0; i < records.size(); i++) {
+                if (decided.get(i) == null) {
+                    valid.add(records.get(i));
+                }
+            }
+            List<Result> written = write(valid);
+
+            int w = 0;
+            for (int i = 0; i < records.size(); i++) {
+                Result result = decided.get(i) != null ? decided.get(i) : written.get(w++);
+                emit(chunkStart + i, result);
+            }
+
+            chunkStart = index;
+            records.clear();
+            decided.clear();
+        }
+
+        private void emit(int position, Result result) throws IOException {
+            switch (result.getStatus()) {
+                case Result.CREATED -> created++;
+                case Result.CONFLICT -> conflicts++;
+                case Result.INVALID -> invalid++;
+                default -> failed++;
+            }
+            out.beginObject();
+            out.name("index").value(position);
+            if (result.getId() != null) {
+                out.name("id").value(result.getId());
+            }
+            if (result.getDbId() != null) {
+                out.name("dbId").value(result.getDbId());
+            }
+            out.name("status").value(result.getStatus());
+            if (result.getMessage() != null) {
+                out.name("message").value(result.getMessage());
+            }
+            out.endObject();
+        }
+    }
+
+    /**
+     * Escribe un bloque; si la transacción falla, se reintenta registro a registro
+     * para que el error quede solo en el registro que lo provoca
+     */
+    private List<Result> write(List<T> chunk) {
+        if (chunk.isEmpty()) {
+            return List.of();
+        }
+        try {
+            return writer.write(chunk);
+        } catch (RuntimeException e) {
+            if (chunk.size() == 1) {
+                return List.of(Result.failed(keyOf.apply(chunk.get(0)), e.getMessage()));
+            }
+            logger.warn("Bloque de {} {} rechazado, reintentando uno por uno: {}", chunk.size(), label, e.getMessage());
+            List<Result> results = new ArrayList<>(chunk.size());
+            for (T record : chunk) {
+                results.addAll(write(List.of(record)));
+            }
+            return results;
+        }
+    }
+
+    /**
+     * Request de Jetty sin el envoltorio de Spark, que copia el cuerpo entero en memoria
+     */
+    private static ServletRequest rawRequest(Request req) {
+        ServletRequest raw = req.raw();
+        while (raw instanceof ServletRequestWrapper wrapper) {
+            raw = wrapper.getRequest();
+        }
+        return raw;
+    }
+
+    private static int firstSignificantChar(Reader in) throws IOException {
+        int c;
+        do {
+            c = in.read();
+        } while (c != -1 && (Character.isWhitespace(c) || c == '\uFEFF'));
+        return c;
+    }
+
+    private static int chunkSizeFromEnv() {
+        String value = System.getenv("BULK_CHUNK_SIZE");
+        if (value == null || value.isBlank()) {
+            return 1000;
+        }
+        return Math.max(1, Integer.parseInt(value.trim()));
+    }
+}
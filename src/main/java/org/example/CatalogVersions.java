@@ -0,0 +1,91 @@
+package org.example;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Contadores de cambios del catálogo: global de items, por item, global de ofertas
+ * y de ofertas por item, cada uno con la hora del último cambio. Los servicios los
+ * incrementan tras cada escritura; las vistas cacheadas y los ETag comparan la versión.
+ * Los contadores empiezan en 0 en cada arranque: los ETag llevan además bootId().
+ */
+public final class CatalogVersions {
+    private static final long BOOT_MILLIS = System.currentTimeMillis();
+    private static final String BOOT_ID = Long.toString(BOOT_MILLIS, 36);
+
+    private static final Version items = new Version();
+    private static final Version offers = new Version();
+    private static final ConcurrentHashMap<String, Version> itemsById = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, Version> offersByItem = new ConcurrentHashMap<>();
+    // Items u ofertas sin cambios desde el arranque
+    private static final Version UNCHANGED = new Version();
+
+    private CatalogVersions() {
+    }
+
+    /**
+     * Número de cambios y momento del último (al arrancar, la hora de arranque)
+     */
+    public static final class Version {
+        private final AtomicLong counter = new AtomicLong();
+        private volatile long modifiedAt = BOOT_MILLIS;
+
+        public long get() {
+            return counter.get();
+        }
+
+        public long modifiedAt() {
+            return modifiedAt;
+        }
+
+        void bump() {
+            modifiedAt = System.currentTimeMillis();
+            counter.incrementAndGet();
+        }
+    }
+
+    /**
+     * Distingue los contadores de este arranque de los de uno anterior
+     */
+    public static String bootId() {
+        return BOOT_ID;
+    }
+
+    /**
+     * Versión de los items (cualquier alta, cambio o baja)
+     */
+    public static Version items() {
+        return items;
+    }
+
+    /**
+     * Versión de un item
+     */
+    public static Version item(String id) {
+        return itemsById.getOrDefault(id, UNCHANGED);
+    }
+
+    /**
+     * Versión de todas las ofertas
+     */
+    public static Version offers() {
+        return offers;
+    }
+
+    /**
+     * Versión de las ofertas de un item
+     */
+    public static Version offers(String itemId) {
+        return offersByItem.getOrDefault(itemId, UNCHANGED);
+    }
+
+    public static void itemChanged(String id) {
+        itemsById.computeIfAbsent(id, k -> new Version()).bump();
+        items.bump();
+    }
+
+    public static void offersChanged(String itemId) {
+        offersByItem.computeIfAbsent(itemId, k -> new Version()).bump();
+        offers.bump();
+    }
+}
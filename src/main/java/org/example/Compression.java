@@ -0,0 +1,48 @@
+package org.example;
+
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.handler.gzip.GzipHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compresión gzip negociada (Accept-Encoding) de las respuestas dinámicas con el
+ * GzipHandler de Jetty, que reutiliza los Deflater de un pool y añade "--gzip" al ETag.
+ * Solo se comprimen HTML, JSON, CSS, JS y texto de al menos COMPRESSION_MIN_BYTES (1024);
+ * los streams SSE y los recursos de /assets (ya comprimidos) quedan fuera.
+ * COMPRESSION=off la desactiva.
+ */
+public final class Compression {
+    private static final Logger logger = LoggerFactory.getLogger(Compression.class);
+
+    private Compression() {
+    }
+
+    public static Handler gzip(Handler handler) {
+        if ("off".equalsIgnoreCase(System.getenv("COMPRESSION"))) {
+            return handler;
+        }
+
+        GzipHandler gzip = new GzipHandler();
+        gzip.setMinGzipSize(intEnv("COMPRESSION_MIN_BYTES", 1024));
+        gzip.setCompressionLevel(intEnv("COMPRESSION_LEVEL", 6));
+        gzip.setDeflaterPoolCapacity(intEnv("COMPRESSION_POOL", 64));
+        gzip.setIncludedMethods("GET", "POST");
+        gzip.setIncludedMimeTypes("text/html", "text/css", "text/plain", "application/javascript",
+                "application/json", "application/x-ndjson");
+        gzip.setExcludedPaths(StaticAssets.PREFIX + "*");
+        // Sin la exclusión por defecto de MSIE 6: así Vary es solo Accept-Encoding, no también User-Agent
+        gzip.setExcludedAgentPatterns();
+        gzip.setHandler(handler);
+        logger.info("🗜️ Compresión gzip para respuestas desde {} bytes", gzip.getMinGzipSize());
+        return gzip;
+    }
+
+    private static int intEnv(String name, int defaultValue) {
+        String value = System.getenv(name);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        return Integer.parseInt(value.trim());
+    }
+}
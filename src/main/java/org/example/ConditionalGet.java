@@ -0,0 +1,143 @@
+package org.example;
+
+import spark.Request;
+import spark.Response;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * GET condicional a partir de las versiones de CatalogVersions.
+ * Pone ETag fuerte y Last-Modified; si el cliente ya tiene esa versión
+ * (If-None-Match o, sin él, If-Modified-Since) responde 304 sin cuerpo,
+ * antes de serializar nada. Las rutas de un solo recurso comprueban primero
+ * que existe: un 404 no lleva ETag ni se valida.
+ */
+public final class ConditionalGet {
+
+    private ConditionalGet() {
+    }
+
+    /**
+     * Etiqueta de una combinación de versiones: "arranque-v1-v2..."
+     */
+    public static String etag(CatalogVersions.Version... versions) {
+        StringBuilder tag = new StringBuilder(32).append('"').append(CatalogVersions.bootId());
+        for (CatalogVersions.Version version : versions) {
+            tag.append('-').append(Long.toString(version.get(), 36));
+        }
+        return tag.append('"').toString();
+    }
+
+    /**
+     * Último cambio entre varias versiones
+     */
+    public static long lastModified(CatalogVersions.Version... versions) {
+        long latest = 0;
+        for (CatalogVersions.Version version : versions) {
+            latest = Math.max(latest, version.modifiedAt());
+        }
+        return latest;
+    }
+
+    /**
+     * ETag y Last-Modified de unas versiones, leídos en un momento dado
+     */
+    public static final class Tag {
+        private final String etag;
+        private final long lastModified;
+
+        Tag(String etag, long lastModified) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+
+        public String getEtag() { return etag; }
+        public long getLastModified() { return lastModified; }
+    }
+
+    /**
+     * Lee las versiones antes de cargar los datos: si cambian mientras tanto, la respuesta
+     * lleva la etiqueta anterior y el cliente la volverá a pedir (nunca al revés)
+     */
+    public static Tag tag(CatalogVersions.Version... versions) {
+        return new Tag(etag(versions), lastModified(versions));
+    }
+
+    /**
+     * Pone las cabeceras de validación; devuelve true (y deja la respuesta en 304)
+     * si el cliente ya tiene la representación actual. Uso:
+     * {@code if (ConditionalGet.notModified(req, res, versions...)) return "";}
+     */
+    public static boolean notModified(Request req, Response res, CatalogVersions.Version... versions) {
+        return notModified(req, res, tag(versions));
+    }
+
+    /**
+     * Igual, con una etiqueta leída antes. Solo para representaciones que existen:
+     * un 404 se envía sin ETag ni Last-Modified.
+     */
+    public static boolean notModified(Request req, Response res, Tag tag) {
+        return notModified(req, res, tag, System.currentTimeMillis());
+    }
+
+    static boolean notModified(Request req, Response res, Tag tag, long now) {
+        res.header("ETag", tag.etag);
+        // Un cambio en el segundo actual no tiene fecha HTTP estable: otro cambio en el
+        // mismo segundo daría el mismo Last-Modified. Hasta el segundo siguiente, solo ETag.
+        if (!sameSecond(tag.lastModified, now)) {
+            res.header("Last-Modified", DateTimeFormatter.RFC_1123_DATE_TIME.format(
+                    Instant.ofEpochMilli(tag.lastModified).atOffset(ZoneOffset.UTC)));
+        }
+        // Se puede guardar, pero hay que validarla en cada uso
+        res.header("Cache-Control", "no-cache");
+
+        // If-None-Match manda: con ETag no se mira la fecha
+        String ifNoneMatch = req.headers("If-None-Match");
+        boolean fresh;
+        if (ifNoneMatch != null) {
+            fresh = matches(ifNoneMatch, tag.etag);
+        } else {
+            fresh = notModifiedSince(req.headers("If-Modified-Since"), tag.lastModified, now);
+        }
+        if (fresh) {
+            res.status(304);
+        }
+        return fresh;
+    }
+
+    /**
+     * If-None-Match como lista de entity tags separadas por comas, o "*"
+     */
+    static boolean matches(String ifNoneMatch, String etag) {
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * If-Modified-Since con resolución de segundos. Si el último cambio es del segundo
+     * actual nunca es fresca: puede haber otro cambio en ese segundo con la misma fecha.
+     */
+    static boolean notModifiedSince(String ifModifiedSince, long modified, long now) {
+        if (ifModifiedSince == null || sameSecond(modified, now)) {
+            return false;
+        }
+        try {
+            long since = Instant.from(DateTimeFormatter.RFC_1123_DATE_TIME.parse(ifModifiedSince.trim())).toEpochMilli();
+            return modified / 1000 <= since / 1000;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    private static boolean sameSecond(long modified, long now) {
+        return modified / 1000 >= now / 1000;
+    }
+}
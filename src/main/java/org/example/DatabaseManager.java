@@ -5,54 +5,82 @@ import com.zaxxer.hikari.HikariDataSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 public class DatabaseManager {
     private static final Logger logger = LoggerFactory.getLogger(DatabaseManager.class);
     private static HikariDataSource dataSource;
+    private static StorageMode mode = StorageMode.POSTGRES;
+    private static volatile Semaphore connectionPermits;
+    private static final PoolMetrics poolMetrics = new PoolMetrics();
+
+    // Filas por ida y vuelta al recorrer resultados grandes en streaming
+    public static final int STREAM_FETCH_SIZE = 500;
 
     /**
-     * Inicializa la conexión a PostgreSQL
+     * Inicializa la base de datos según DB_MODE (postgres, h2-file o h2-mem)
      */
     public static void init() {
-        try {
-            HikariConfig config = new HikariConfig();
+        StorageMode selected = StorageMode.fromEnv();
 
-            // Configuración de conexión a PostgreSQL
-            String dbUrl = System.getenv().getOrDefault("DB_URL", "jdbc:postgresql://localhost:5432/auction_store");
-            String dbUser = System.getenv().getOrDefault("DB_USER", "postgres");
-            String dbPassword = System.getenv().getOrDefault("DB_PASSWORD", "12345");
+        String dbUrl = System.getenv().getOrDefault("DB_URL", selected.getDefaultUrl());
+        String dbUser = System.getenv().getOrDefault("DB_USER", selected.getDefaultUser());
+        String dbPassword = System.getenv().getOrDefault("DB_PASSWORD", selected.getDefaultPassword());
 
-            // Si DB_PASSWORD está vacío, intenta leer de propiedades del sistema
-            if (dbPassword.isEmpty()) {
-                dbPassword = System.getProperty("db.password", "12345");
-            }
+        // Si DB_PASSWORD está vacío, intenta leer de propiedades del sistema
+        if (dbPassword.isEmpty() && !selected.isEmbedded()) {
+            dbPassword = System.getProperty("db.password", "12345");
+        }
+
+        init(selected, dbUrl, dbUser, dbPassword);
+    }
+
+    /**
+     * Inicializa la conexión con una URL JDBC explícita (PostgreSQL o H2, p. ej. en benchmarks)
+     */
+    public static void init(String dbUrl, String dbUser, String dbPassword) {
+        init(StorageMode.fromUrl(dbUrl), dbUrl, dbUser, dbPassword);
+    }
+
+    private static void init(StorageMode selected, String dbUrl, String dbUser, String dbPassword) {
+        try {
+            HikariConfig config = new HikariConfig();
 
-            logger.info("🔌 Intentando conectar a: {}", dbUrl);
+            logger.info("🔌 Intentando conectar a: {} (modo {})", dbUrl, selected.getId());
             logger.info("👤 Usuario: {}", dbUser);
 
             config.setJdbcUrl(dbUrl);
             config.setUsername(dbUser);
             config.setPassword(dbPassword);
-            config.setDriverClassName("org.postgresql.Driver");
-
-            // Configuración del pool de conexiones
-            config.setMaximumPoolSize(10);
-            config.setMinimumIdle(2);
-            config.setConnectionTimeout(30000);
-            config.setIdleTimeout(600000);
-            config.setMaxLifetime(1800000);
-
-            // Propiedades adicionales para PostgreSQL
-            config.addDataSourceProperty("cachePrepStmts", "true");
-            config.addDataSourceProperty("prepStmtCacheSize", "250");
-            config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+            config.setDriverClassName(selected.getDriverClassName());
+
+            // Configuración del pool: valores del motor, ajustables con DB_POOL_* / -Ddb.pool.*
+            config.setPoolName("reto6-pool");
+            PoolSettings.apply(config, selected);
+            config.setMetricsTrackerFactory(poolMetrics);
+
+            // Propiedades adicionales para PostgreSQL (H2 rechaza propiedades desconocidas)
+            if (!selected.isEmbedded()) {
+                config.addDataSourceProperty("cachePrepStmts", "true");
+                config.addDataSourceProperty("prepStmtCacheSize", "250");
+                config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+                // Los lotes de INSERT (addBatch) viajan como INSERT multi-fila
+                config.addDataSourceProperty("reWriteBatchedInserts", "true");
+            }
 
             dataSource = new HikariDataSource(config);
+            mode = selected;
 
-            logger.info("Conexión a PostgreSQL establecida correctamente");
+            logger.info("Conexión a la base de datos establecida correctamente");
 
             // Crear las tablas
             createTables();
@@ -60,75 +88,106 @@ public class DatabaseManager {
             // Cargar datos iniciales
             loadInitialData();
 
+            // Ofertas aceptadas en el registro local que no llegaron a la tabla (caída anterior)
+            replayOfferLog();
+
         } catch (Exception e) {
-            logger.error("Error al conectar a PostgreSQL: {}", e.getMessage());
-            logger.error("Verifica que PostgreSQL esté corriendo y que la contraseña sea correcta");
+            logger.error("Error al conectar a la base de datos ({}): {}", selected.getId(), e.getMessage());
+            if (!selected.isEmbedded()) {
+                logger.error("Verifica que PostgreSQL esté corriendo y que la contraseña sea correcta");
+            }
             throw new RuntimeException("No se pudo conectar a la base de datos", e);
         }
     }
 
+    /**
+     * Motor en uso (disponible tras init)
+     */
+    public static StorageMode getMode() {
+        return mode;
+    }
+
     /**
      * Obtiene una conexión de la base de datos
      */
     public static Connection getConnection() throws SQLException {
+        return getConnection(null);
+    }
+
+    /**
+     * Obtiene una conexión para una operación de servicio (p. ej. "ItemService.get"):
+     * al cerrarla se registra en /metrics el tiempo que estuvo tomada
+     */
+    public static Connection getConnection(String operation) throws SQLException {
         if (dataSource == null) {
             throw new SQLException("Base de datos no inicializada. Llama a init() primero.");
         }
-        return dataSource.getConnection();
+        Semaphore permits = connectionPermits;
+        if (permits != null) {
+            try {
+                if (!permits.tryAcquire(dataSource.getConnectionTimeout(), TimeUnit.MILLISECONDS)) {
+                    throw new SQLException("Tiempo de espera agotado para obtener una conexión ("
+                            + permits.getQueueLength() + " peticiones esperando)");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrumpido al esperar una conexión", e);
+            }
+        }
+
+        try {
+            Connection conn = dataSource.getConnection();
+            if (permits == null && operation == null) {
+                return conn;
+            }
+            return new MeteredConnection(conn, permits, operation);
+        } catch (SQLException | RuntimeException e) {
+            if (permits != null) {
+                permits.release();
+            }
+            throw e;
+        }
     }
 
     /**
-     * Crea las tablas necesarias
+     * Limita las conexiones en uso al tamaño del pool con un semáforo justo.
+     * Con hilos virtuales puede haber miles de peticiones a la vez: las que no tienen
+     * permiso esperan aparcadas en el semáforo en vez de entrar al driver JDBC.
      */
-    private static void createTables() {
-        logger.info("Creando tablas...");
-
-        String createUsersTable = """
-            CREATE TABLE IF NOT EXISTS users (
-                id VARCHAR(50) PRIMARY KEY,
-                name VARCHAR(100) NOT NULL,
-                email VARCHAR(100) NOT NULL UNIQUE,
-                password VARCHAR(255),
-                created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
-            )
-        """;
-
-        String createItemsTable = """
-            CREATE TABLE IF NOT EXISTS items (
-                id VARCHAR(50) PRIMARY KEY,
-                name VARCHAR(200) NOT NULL,
-                description TEXT,
-                price VARCHAR(50),
-                image_url VARCHAR(500),
-                created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
-            )
-        """;
-
-        String createOffersTable = """
-            CREATE TABLE IF NOT EXISTS offers (
-                id SERIAL PRIMARY KEY,
-                name VARCHAR(100) NOT NULL,
-                email VARCHAR(100) NOT NULL,
-                item_id VARCHAR(50) NOT NULL,
-                amount DECIMAL(10, 2) NOT NULL,
-                status VARCHAR(20) DEFAULT 'pending',
-                created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-                FOREIGN KEY (item_id) REFERENCES items(id) ON DELETE CASCADE
-            )
-        """;
+    public static void limitConcurrency() {
+        int size = dataSource.getMaximumPoolSize();
+        connectionPermits = new Semaphore(size, true);
+        logger.info("🚦 Acceso a la base de datos limitado a {} peticiones simultáneas", size);
+    }
 
-        try (Connection conn = getConnection();
-             Statement stmt = conn.createStatement()) {
+    /**
+     * Métricas del pool (activas, libres, en espera, tiempos de obtención y uso)
+     */
+    public static Map<String, Object> poolMetrics() {
+        Map<String, Object> stats = poolMetrics.snapshot();
+        stats.put("waitingForPermit", waitingForConnection());
+        return stats;
+    }
 
-            stmt.execute(createUsersTable);
-            stmt.execute(createItemsTable);
-            stmt.execute(createOffersTable);
+    /**
+     * Peticiones esperando un permiso de conexión (0 si no hay límite)
+     */
+    public static int waitingForConnection() {
+        Semaphore permits = connectionPermits;
+        return permits != null ? permits.getQueueLength() : 0;
+    }
 
-            logger.info("Tablas creadas correctamente");
+    /**
+     * Crea o actualiza el esquema aplicando las migraciones pendientes
+     */
+    private static void createTables() {
+        logger.info("Verificando esquema...");
 
+        try (Connection conn = getConnection()) {
+            new SchemaMigrations().migrate(conn, mode);
         } catch (SQLException e) {
-            logger.error("Error al crear tablas", e);
-            throw new RuntimeException("Error al crear tablas", e);
+            logger.error("Error al migrar el esquema", e);
+            throw new RuntimeException("Error al migrar el esquema", e);
         }
     }
 
@@ -151,54 +210,46 @@ public class DatabaseManager {
                 return;
             }
 
-            // Insertar items desde el JSON
-            String[] insertQueries = {
-                    """
-                INSERT INTO items (id, name, description, price) VALUES 
-                ('item1', 'Gorra autografiada por Peso Pluma', 
-                 'Una gorra autografiada por el famoso Peso Pluma.', 
-                 '$621.34 USD')
-                """,
-                    """
-                INSERT INTO items (id, name, description, price) VALUES 
-                ('item2', 'Casco autografiado por Rosalía', 
-                 'Un casco autografiado por la famosa cantante Rosalía, una verdadera MOTOMAMI!', 
-                 '$734.57 USD')
-                """,
-                    """
-                INSERT INTO items (id, name, description, price) VALUES 
-                ('item3', 'Chamarra de Bad Bunny', 
-                 'Una chamarra de la marca favorita de Bad Bunny, autografiada por el propio artista.', 
-                 '$521.89 USD')
-                """,
-                    """
-                INSERT INTO items (id, name, description, price) VALUES 
-                ('item4', 'Guitarra de Fernando Delgadillo', 
-                 'Una guitarra acústica de alta calidad utilizada por el famoso cantautor Fernando Delgadillo.', 
-                 '$823.12 USD')
-                """,
-                    """
-                INSERT INTO items (id, name, description, price) VALUES 
-                ('item5', 'Jersey firmado por Snoop Dogg', 
-                 'Un jersey autografiado por el legendario rapero Snoop Dogg.', 
-                 '$355.67 USD')
-                """,
-                    """
-                INSERT INTO items (id, name, description, price) VALUES 
-                ('item6', 'Prenda de Cardi B autografiada', 
-                 'Un crop-top usado y autografiado por la famosa rapera Cardi B. en su última visita a México', 
-                 '$674.23 USD')
-                """,
-                    """
-                INSERT INTO items (id, name, description, price) VALUES 
-                ('item7', 'Guitarra autografiada por Coldplay', 
-                 'Una guitarra eléctrica autografiada por la popular banda británica Coldplay, un día antes de su concierto en Monterrey en 2022.', 
-                 '$458.91 USD')
-                """
+            // Items iniciales: {id, nombre, descripción, precio en USD}
+            String[][] initialItems = {
+                    {"item1", "Gorra autografiada por Peso Pluma",
+                     "Una gorra autografiada por el famoso Peso Pluma.",
+                     "621.34"},
+                    {"item2", "Casco autografiado por Rosalía",
+                     "Un casco autografiado por la famosa cantante Rosalía, una verdadera MOTOMAMI!",
+                     "734.57"},
+                    {"item3", "Chamarra de Bad Bunny",
+                     "Una chamarra de la marca favorita de Bad Bunny, autografiada por el propio artista.",
+                     "521.89"},
+                    {"item4", "Guitarra de Fernando Delgadillo",
+                     "Una guitarra acústica de alta calidad utilizada por el famoso cantautor Fernando Delgadillo.",
+                     "823.12"},
+                    {"item5", "Jersey firmado por Snoop Dogg",
+                     "Un jersey autografiado por el legendario rapero Snoop Dogg.",
+                     "355.67"},
+                    {"item6", "Prenda de Cardi B autografiada",
+                     "Un crop-top usado y autografiado por la famosa rapera Cardi B. en su última visita a México",
+                     "674.23"},
+                    {"item7", "Guitarra autografiada por Coldplay",
+                     "Una guitarra eléctrica autografiada por la popular banda británica Coldplay, un día antes de su concierto en Monterrey en 2022.",
+                     "458.91"}
             };
 
-            for (String query : insertQueries) {
-                stmt.execute(query);
+            String sql = "INSERT INTO items (id, name, description, price_amount, price_currency) VALUES (?, ?, ?, ?, 'USD')";
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                for (String[] item : initialItems) {
+                    pstmt.setString(1, item[0]);
+                    pstmt.setString(2, item[1]);
+                    pstmt.setString(3, item[2]);
+                    pstmt.setBigDecimal(4, new BigDecimal(item[3]));
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
             }
 
             logger.info("Items cargados correctamente (7 items)");
@@ -208,13 +259,34 @@ public class DatabaseManager {
         }
     }
 
+    /**
+     * Reproduce en offers lo pendiente del registro local de ofertas, si existe.
+     * Si falla, las ofertas siguen en disco y se reintentan en segundo plano.
+     */
+    private static void replayOfferLog() {
+        Path dir = OfferLog.directoryFromEnv();
+        if (!OfferLog.exists(dir)) {
+            return;
+        }
+
+        try (OfferLog log = OfferLog.open(dir)) {
+            // El libro en memoria se carga después (OfferService.warmUp), así que basta con insertar
+            int replayed = log.replay(new OfferService()::addLogged);
+            if (replayed > 0) {
+                logger.info("📒 {} ofertas del registro local reproducidas (las ya insertadas se omiten)", replayed);
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.error("Error al reproducir el registro de ofertas: {}", e.getMessage());
+        }
+    }
+
     /**
      * Cierra la conexión a la base de datos
      */
     public static void close() {
         if (dataSource != null && !dataSource.isClosed()) {
             dataSource.close();
-            logger.info("Conexión a PostgreSQL cerrada");
+            logger.info("Conexión a la base de datos cerrada");
         }
     }
 
@@ -227,7 +299,7 @@ public class DatabaseManager {
 
             var rs = stmt.executeQuery("SELECT version()");
             if (rs.next()) {
-                logger.info("PostgreSQL conectado: {}", rs.getString(1));
+                logger.info("Base de datos conectada ({}): {}", mode.getId(), rs.getString(1));
             }
 
         } catch (SQLException e) {
@@ -0,0 +1,185 @@
+package org.example;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caché LRU acotada con TTL para items.
+ * Guarda items individuales (incluidas las ausencias) y la lista completa ordenada.
+ * Las instancias devueltas se comparten entre peticiones: no deben modificarse.
+ */
+public class ItemCache {
+    private final int maxEntries;
+    private final long ttlNanos;
+
+    private final Map<String, Entry> entries;
+    private volatile ListEntry allItems;
+
+    // Se incrementa en cada invalidación; una carga iniciada antes no se guarda
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ItemCache(int maxEntries, long ttlMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttlMillis * 1_000_000L;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > ItemCache.this.maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Crea la caché leyendo ITEM_CACHE_MAX e ITEM_CACHE_TTL_MS del entorno
+     */
+    public static ItemCache fromEnv() {
+        int max = Integer.parseInt(System.getenv().getOrDefault("ITEM_CACHE_MAX", "10000"));
+        long ttl = Long.parseLong(System.getenv().getOrDefault("ITEM_CACHE_TTL_MS", "60000"));
+        return new ItemCache(max, ttl);
+    }
+
+    /**
+     * Marca de generación a tomar antes de leer de la base de datos
+     */
+    public long stamp() {
+        return generation.get();
+    }
+
+    /**
+     * Busca un item. Devuelve null si no está en caché; un Lookup con item null
+     * indica que se sabe que el item no existe.
+     */
+    public Lookup get(String id) {
+        Entry e;
+        synchronized (entries) {
+            e = entries.get(id);
+            if (e != null && isExpired(e.loadedAt)) {
+                entries.remove(id);
+                e = null;
+            }
+        }
+        if (e == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return e.lookup;
+    }
+
+    public void put(String id, Item item, long stamp) {
+        if (maxEntries <= 0) {
+            return;
+        }
+        synchronized (entries) {
+            if (stamp == generation.get()) {
+                entries.put(id, new Entry(new Lookup(item), System.nanoTime()));
+            }
+        }
+    }
+
+    /**
+     * Lista completa ordenada, o null si no está en caché
+     */
+    public List<Item> getAll() {
+        ListEntry e = allItems;
+        if (e == null || isExpired(e.loadedAt)) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return e.items;
+    }
+
+    public void putAll(List<Item> items, long stamp) {
+        synchronized (entries) {
+            if (stamp == generation.get()) {
+                allItems = new ListEntry(Collections.unmodifiableList(items), System.nanoTime());
+            }
+        }
+    }
+
+    /**
+     * Invalida un item y la lista completa (tras add/update/delete)
+     */
+    public void invalidate(String id) {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            entries.remove(id);
+            allItems = null;
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            entries.clear();
+            allItems = null;
+        }
+    }
+
+    /**
+     * Contadores de la caché: hits, misses, evictions y tamaño actual
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("evictions", evictions.sum());
+        synchronized (entries) {
+            stats.put("size", entries.size());
+        }
+        stats.put("maxEntries", maxEntries);
+        return stats;
+    }
+
+    private boolean isExpired(long loadedAt) {
+        return System.nanoTime() - loadedAt > ttlNanos;
+    }
+
+    /**
+     * Resultado de una búsqueda en caché; item es null si el item no existe
+     */
+    public static final class Lookup {
+        private final Item item;
+
+        Lookup(Item item) {
+            this.item = item;
+        }
+
+        public Item getItem() {
+            return item;
+        }
+    }
+
+    private static final class Entry {
+        final Lookup lookup;
+        final long loadedAt;
+
+        Entry(Lookup lookup, long loadedAt) {
+            this.lookup = lookup;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    private static final class ListEntry {
+        final List<Item> items;
+        final long loadedAt;
+
+        ListEntry(List<Item> items, long loadedAt) {
+            this.items = items;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -3,35 +3,59 @@ package org.example;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.math.BigDecimal;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class ItemService {
     private static final Logger logger = LoggerFactory.getLogger(ItemService.class);
 
+    private final ItemCache cache;
+    // Búsqueda por nombre (más peso) y descripción
+    private final SearchIndex<Item> searchIndex = new SearchIndex<>(
+            List.of(SearchIndex.field(Item::getName, 3), SearchIndex.field(Item::getDescription, 1)));
+
+    public ItemService() {
+        this(ItemCache.fromEnv());
+    }
+
+    public ItemService(ItemCache cache) {
+        this.cache = cache;
+    }
+
     /**
-     * Obtiene todos los items
+     * Obtiene todos los items (lectura a través de la caché)
      */
     public Collection<Item> getAll() {
+        List<Item> cached = cache.getAll();
+        if (cached != null) {
+            return cached;
+        }
+
+        long stamp = cache.stamp();
         List<Item> items = new ArrayList<>();
-        String sql = "SELECT id, name, description, price FROM items ORDER BY created_at DESC";
+        String sql = "SELECT id, name, description, price_amount, price_currency FROM items ORDER BY created_at DESC, id DESC";
 
-        try (Connection conn = DatabaseManager.getConnection();
+        try (Connection conn = DatabaseManager.getConnection("ItemService.getAll");
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
             while (rs.next()) {
-                Item item = new Item();
-                item.setId(rs.getString("id"));
-                item.setName(rs.getString("name"));
-                item.setDescription(rs.getString("description"));
-                item.setPrice(rs.getString("price"));
+                Item item = readItem(rs);
                 items.add(item);
             }
 
             logger.debug("📋 Se obtuvieron {} items", items.size());
+            cache.putAll(items, stamp);
 
         } catch (SQLException e) {
             logger.error("❌ Error al obtener items", e);
@@ -41,81 +65,293 @@ public class ItemService {
     }
 
     /**
-     * Obtiene un item por ID
+     * Item del listado con el resumen de sus ofertas persistidas
      */
-    public Item get(String id) {
-        String sql = "SELECT id, name, description, price FROM items WHERE id = ?";
+    public static final class Listing {
+        private final Item item;
+        private final OfferStats stats;
+
+        Listing(Item item, OfferStats stats) {
+            this.item = item;
+            this.stats = stats;
+        }
+
+        public Item getItem() { return item; }
+        public OfferStats getStats() { return stats; }
+    }
+
+    /**
+     * Obtiene todos los items con su número de ofertas, oferta más alta y última oferta
+     * en una sola consulta (LEFT JOIN a item_offer_stats; sin ofertas, el resumen va a cero)
+     */
+    public List<Listing> getAllWithStats() {
+        List<Listing> listings = new ArrayList<>();
+        String sql = "SELECT i.id, i.name, i.description, i.price_amount, i.price_currency, "
+                + "s.offer_count, s.max_amount, s.last_offer_at "
+                + "FROM items i LEFT JOIN item_offer_stats s ON s.item_id = i.id "
+                + "ORDER BY i.created_at DESC, i.id DESC";
+
+        try (Connection conn = DatabaseManager.getConnection("ItemService.getAllWithStats");
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            while (rs.next()) {
+                BigDecimal max = rs.getBigDecimal("max_amount");
+                OfferStats stats = new OfferStats(rs.getLong("offer_count"),
+                        max != null ? max.doubleValue() : null, rs.getTimestamp("last_offer_at"));
+                listings.add(new Listing(readItem(rs), stats));
+            }
+
+            logger.debug("📋 Se obtuvieron {} items con resumen de ofertas", listings.size());
+
+        } catch (SQLException e) {
+            logger.error("Error al obtener items con resumen de ofertas", e);
+            throw new RuntimeException("Error al obtener items: " + e.getMessage());
+        }
+
+        return listings;
+    }
+
+    /**
+     * Carga todos los items en el índice de búsqueda (al arrancar)
+     */
+    public void buildSearchIndex() {
+        String sql = "SELECT id, name, description, price_amount, price_currency FROM items";
+        int loaded = 0;
+
+        try (Connection conn = DatabaseManager.getConnection("ItemService.buildSearchIndex");
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            searchIndex.clear();
+            while (rs.next()) {
+                Item item = readItem(rs);
+                searchIndex.put(item.getId(), item);
+                loaded++;
+            }
+
+            logger.info("🔎 Índice de búsqueda de items cargado: {} items", loaded);
+
+        } catch (SQLException e) {
+            logger.error("Error al cargar el índice de búsqueda de items", e);
+            throw new RuntimeException("Error al cargar el índice de búsqueda: " + e.getMessage());
+        }
+    }
 
-        try (Connection conn = DatabaseManager.getConnection();
+    /**
+     * Busca items por nombre y descripción (palabras completas, prefijos o fragmentos)
+     */
+    public SearchIndex.Hits<Item> search(String query, int limit) {
+        SearchIndex.Hits<Item> hits = searchIndex.search(query, limit);
+        logger.debug("🔍 Búsqueda '{}' encontró {} items", query, hits.getTotal());
+        return hits;
+    }
+
+    /**
+     * Contadores del índice de búsqueda
+     */
+    public Map<String, Object> searchStats() {
+        return searchIndex.stats();
+    }
+
+    /**
+     * Obtiene una página de items ordenada por (created_at, id) descendente
+     */
+    public Page<Item> getPage(String cursor, int limit) {
+        Page.Cursor after = Page.decodeCursor(cursor);
+        String sql = "SELECT id, name, description, price_amount, price_currency, created_at FROM items "
+                + (after != null ? "WHERE (created_at, id) < (?, ?) " : "")
+                + "ORDER BY created_at DESC, id DESC LIMIT ?";
+
+        List<Item> items = new ArrayList<>();
+        String next = null;
+
+        try (Connection conn = DatabaseManager.getConnection("ItemService.getPage");
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
-            pstmt.setString(1, id);
+            int i = 1;
+            if (after != null) {
+                pstmt.setTimestamp(i++, after.getCreatedAt());
+                pstmt.setString(i++, after.getId());
+            }
+            // Se pide una fila extra para saber si hay página siguiente
+            pstmt.setInt(i, limit + 1);
 
             try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    Item item = new Item();
-                    item.setId(rs.getString("id"));
-                    item.setName(rs.getString("name"));
-                    item.setDescription(rs.getString("description"));
-                    item.setPrice(rs.getString("price"));
+                Timestamp lastCreatedAt = null;
+                while (rs.next()) {
+                    if (items.size() == limit) {
+                        Item last = items.get(items.size() - 1);
+                        next = Page.encodeCursor(lastCreatedAt, last.getId());
+                        break;
+                    }
+                    items.add(readItem(rs));
+                    lastCreatedAt = rs.getTimestamp("created_at");
+                }
+            }
 
-                    logger.debug("Item encontrado: {}", id);
-                    return item;
+        } catch (SQLException e) {
+            logger.error("❌ Error al obtener página de items", e);
+            throw new RuntimeException("Error al obtener items: " + e.getMessage());
+        }
+
+        return new Page<>(items, next);
+    }
+
+    /**
+     * Recorre todos los items sin cargarlos en memoria (fetch size de JDBC)
+     */
+    public void streamAll(RowHandler<Item> handler) throws IOException {
+        String sql = "SELECT id, name, description, price_amount, price_currency FROM items ORDER BY created_at DESC, id DESC";
+
+        try (Connection conn = DatabaseManager.getConnection("ItemService.streamAll")) {
+            // PostgreSQL solo usa cursores en el servidor con autocommit desactivado
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setFetchSize(DatabaseManager.STREAM_FETCH_SIZE);
+
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        handler.handle(readItem(rs));
+                    }
                 }
             }
+            conn.commit();
 
         } catch (SQLException e) {
-            logger.error("Error al buscar item: {}", id, e);
+            logger.error("❌ Error al recorrer items", e);
+            throw new RuntimeException("Error al obtener items: " + e.getMessage());
         }
+    }
 
-        logger.debug("Item no encontrado: {}", id);
-        return null;
+    /**
+     * Obtiene varios items por ID en una sola consulta; los que no existen no aparecen en el mapa
+     */
+    public Map<String, Item> getAll(Collection<String> ids) {
+        Map<String, Item> found = new HashMap<>();
+        Set<String> missing = new LinkedHashSet<>();
+
+        for (String id : ids) {
+            if (id == null || found.containsKey(id)) {
+                continue;
+            }
+            ItemCache.Lookup cached = cache.get(id);
+            if (cached == null) {
+                missing.add(id);
+            } else if (cached.getItem() != null) {
+                found.put(id, cached.getItem());
+            }
+        }
+
+        if (missing.isEmpty()) {
+            return found;
+        }
+
+        long stamp = cache.stamp();
+        String sql = "SELECT id, name, description, price_amount, price_currency FROM items WHERE id = ANY(?)";
+
+        try (Connection conn = DatabaseManager.getConnection("ItemService.getAllById");
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setArray(1, conn.createArrayOf("varchar", missing.toArray()));
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Item item = readItem(rs);
+                    found.put(item.getId(), item);
+                }
+            }
+
+            for (String id : missing) {
+                cache.put(id, found.get(id), stamp);
+            }
+
+            logger.debug("📋 {} items cargados en lote ({} pedidos)", found.size(), missing.size());
+
+        } catch (SQLException e) {
+            logger.error("Error al obtener items en lote", e);
+        }
+
+        return found;
     }
 
     /**
-     * Verifica si un item existe
+     * Obtiene un item por ID (lectura a través de la caché)
      */
-    public boolean exists(String id) {
-        String sql = "SELECT COUNT(*) FROM items WHERE id = ?";
+    public Item get(String id) {
+        ItemCache.Lookup cached = cache.get(id);
+        if (cached != null) {
+            return cached.getItem();
+        }
+
+        long stamp = cache.stamp();
+        String sql = "SELECT id, name, description, price_amount, price_currency FROM items WHERE id = ?";
 
-        try (Connection conn = DatabaseManager.getConnection();
+        try (Connection conn = DatabaseManager.getConnection("ItemService.get");
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setString(1, id);
 
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
-                    return rs.getInt(1) > 0;
+                    Item item = readItem(rs);
+
+                    logger.debug("Item encontrado: {}", id);
+                    cache.put(id, item, stamp);
+                    return item;
                 }
             }
 
+            logger.debug("Item no encontrado: {}", id);
+            cache.put(id, null, stamp);
+
         } catch (SQLException e) {
-            logger.error("Error al verificar existencia de item: {}", id, e);
+            logger.error("Error al buscar item: {}", id, e);
         }
 
-        return false;
+        return null;
+    }
+
+    /**
+     * Verifica si un item existe
+     */
+    public boolean exists(String id) {
+        return get(id) != null;
+    }
+
+    /**
+     * Contadores de la caché de items
+     */
+    public Map<String, Object> cacheStats() {
+        return cache.stats();
     }
 
     /**
-     * Agrega un nuevo item
+     * Agrega un nuevo item en una sola sentencia; devuelve false si el id ya existe
      */
-    public void add(Item item) {
-        String sql = "INSERT INTO items (id, name, description, price) VALUES (?, ?, ?, ?)";
+    public boolean add(Item item) {
+        String sql = "INSERT INTO items (id, name, description, price_amount, price_currency) VALUES (?, ?, ?, ?, ?)"
+                + DatabaseManager.getMode().onConflictDoNothing("id");
+        Price price = Price.parse(item.getPrice());
 
-        try (Connection conn = DatabaseManager.getConnection();
+        try (Connection conn = DatabaseManager.getConnection("ItemService.add");
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setString(1, item.getId());
             pstmt.setString(2, item.getName());
             pstmt.setString(3, item.getDescription());
-            pstmt.setString(4, item.getPrice());
+            setPrice(pstmt, 4, price);
 
             int rows = pstmt.executeUpdate();
 
             if (rows > 0) {
-                logger.info("Item creado: {} ({})", item.getName(), item.getId());
+                logger.debug("Item creado: {} ({})", item.getName(), item.getId());
+                changed(item.getId(), indexed(item.getId(), item, price));
             }
 
+            return rows > 0;
+
         } catch (SQLException e) {
             logger.error("Error al crear item: {}", item.getId(), e);
             throw new RuntimeException("Error al crear item: " + e.getMessage());
@@ -123,27 +359,103 @@ public class ItemService {
     }
 
     /**
-     * Actualiza un item existente
+     * Inserta un bloque de items en una transacción con addBatch.
+     * Los ids ya existentes (o repetidos dentro del bloque) se informan como conflicto.
+     * Solo cuentan como creados los ids que devuelve el INSERT (RETURNING id): con
+     * reWriteBatchedInserts, PostgreSQL da SUCCESS_NO_INFO por fila y el número de filas
+     * no distingue una fila que ON CONFLICT DO NOTHING descartó.
      */
-    public void update(String id, Item item) {
-        String sql = "UPDATE items SET name = ?, description = ?, price = ? WHERE id = ?";
+    public List<BulkImport.Result> addAll(List<Item> items) {
+        String sql = "INSERT INTO items (id, name, description, price_amount, price_currency) VALUES (?, ?, ?, ?, ?)"
+                + DatabaseManager.getMode().onConflictDoNothing("id");
+        BulkImport.Result[] results = new BulkImport.Result[items.size()];
+        List<Integer> batched = new ArrayList<>(items.size());
+
+        try (Connection conn = DatabaseManager.getConnection("ItemService.addAll")) {
+            conn.setAutoCommit(false);
+            try {
+                Set<String> existing = existingIds(conn, items);
+                Set<String> seen = new HashSet<>();
+
+                try (PreparedStatement pstmt = conn.prepareStatement(sql, new String[] {"id"})) {
+                    for (int i = 0; i < items.size(); i++) {
+                        Item item = items.get(i);
+                        if (existing.contains(item.getId()) || !seen.add(item.getId())) {
+                            results[i] = BulkImport.Result.conflict(item.getId(), "Item already exists");
+                            continue;
+                        }
+                        pstmt.setString(1, item.getId());
+                        pstmt.setString(2, item.getName());
+                        pstmt.setString(3, item.getDescription());
+                        setPrice(pstmt, 4, Price.parse(item.getPrice()));
+                        pstmt.addBatch();
+                        batched.add(i);
+                    }
+
+                    pstmt.executeBatch();
+                    Set<String> inserted = new HashSet<>();
+                    try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                        while (keys.next()) {
+                            inserted.add(keys.getString(1));
+                        }
+                    }
+                    for (int i : batched) {
+                        String id = items.get(i).getId();
+                        // Sin id devuelto: otro escritor insertó el mismo id entre la consulta y el INSERT
+                        results[i] = inserted.contains(id)
+                                ? BulkImport.Result.created(id)
+                                : BulkImport.Result.conflict(id, "Item already exists");
+                    }
+                }
+                conn.commit();
 
-        try (Connection conn = DatabaseManager.getConnection();
+                for (int k = 0; k < batched.size(); k++) {
+                    if (BulkImport.Result.CREATED.equals(results[batched.get(k)].getStatus())) {
+                        Item item = items.get(batched.get(k));
+                        changed(item.getId(), indexed(item.getId(), item, Price.parse(item.getPrice())));
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+
+            logger.debug("Lote de items insertado: {} nuevos de {}", batched.size(), items.size());
+
+        } catch (SQLException e) {
+            logger.error("Error al importar lote de {} items", items.size(), e);
+            throw new RuntimeException("Error al importar items: " + e.getMessage());
+        }
+
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Actualiza un item existente; devuelve false si no existe
+     */
+    public boolean update(String id, Item item) {
+        String sql = "UPDATE items SET name = ?, description = ?, price_amount = ?, price_currency = ? WHERE id = ?";
+        Price price = Price.parse(item.getPrice());
+
+        try (Connection conn = DatabaseManager.getConnection("ItemService.update");
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setString(1, item.getName());
             pstmt.setString(2, item.getDescription());
-            pstmt.setString(3, item.getPrice());
-            pstmt.setString(4, id);
+            setPrice(pstmt, 3, price);
+            pstmt.setString(5, id);
 
             int rows = pstmt.executeUpdate();
 
             if (rows > 0) {
-                logger.info("Item actualizado: {}", id);
+                logger.debug("Item actualizado: {}", id);
+                changed(id, indexed(id, item, price));
             } else {
-                logger.warn("No se encontró item para actualizar: {}", id);
+                logger.debug("No se encontró item para actualizar: {}", id);
             }
 
+            return rows > 0;
+
         } catch (SQLException e) {
             logger.error("Error al actualizar item: {}", id, e);
             throw new RuntimeException("Error al actualizar item: " + e.getMessage());
@@ -151,12 +463,12 @@ public class ItemService {
     }
 
     /**
-     * Elimina un item
+     * Elimina un item; devuelve false si no existe
      */
-    public void delete(String id) {
+    public boolean delete(String id) {
         String sql = "DELETE FROM items WHERE id = ?";
 
-        try (Connection conn = DatabaseManager.getConnection();
+        try (Connection conn = DatabaseManager.getConnection("ItemService.delete");
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setString(1, id);
@@ -164,14 +476,80 @@ public class ItemService {
             int rows = pstmt.executeUpdate();
 
             if (rows > 0) {
-                logger.info("Item eliminado: {}", id);
+                logger.debug("Item eliminado: {}", id);
+                changed(id, null);
             } else {
-                logger.warn("No se encontró item para eliminar: {}", id);
+                logger.debug("No se encontró item para eliminar: {}", id);
             }
 
+            return rows > 0;
+
         } catch (SQLException e) {
             logger.error("Error al eliminar item: {}", id, e);
             throw new RuntimeException("Error al eliminar item: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Tras una escritura confirmada que cambió la fila: índice de búsqueda (indexed null si se
+     * borró), fuera de la caché y nueva versión. La versión va al final: quien lea la nueva
+     * ya encuentra el índice y la caché al día.
+     * Si la sentencia falla o no toca ninguna fila, la caché y los ETag siguen valiendo.
+     */
+    private void changed(String id, Item indexed) {
+        if (indexed != null) {
+            searchIndex.put(id, indexed);
+        } else {
+            searchIndex.remove(id);
+        }
+        cache.invalidate(id);
+        CatalogVersions.itemChanged(id);
+    }
+
+    /**
+     * Ids del bloque que ya existen, en una sola consulta
+     */
+    Set<String> existingIds(Connection conn, List<Item> items) throws SQLException {
+        Set<String> existing = new HashSet<>();
+        Object[] ids = items.stream().map(Item::getId).distinct().toArray();
+
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT id FROM items WHERE id = ANY(?)")) {
+            pstmt.setArray(1, conn.createArrayOf("varchar", ids));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    existing.add(rs.getString(1));
+                }
+            }
+        }
+        return existing;
+    }
+
+    /**
+     * Copia del item tal como la devolvería la base de datos, para el índice de búsqueda
+     */
+    private static Item indexed(String id, Item item, Price price) {
+        return new Item(id, item.getName(), item.getDescription(), price != null ? price.toString() : null);
+    }
+
+    private static Item readItem(ResultSet rs) throws SQLException {
+        Item item = new Item();
+        item.setId(rs.getString("id"));
+        item.setName(rs.getString("name"));
+        item.setDescription(rs.getString("description"));
+        item.setPrice(Price.format(rs.getBigDecimal("price_amount"), rs.getString("price_currency")));
+        return item;
+    }
+
+    /**
+     * Asigna price_amount y price_currency a partir de las posiciones {@code index} e {@code index + 1}
+     */
+    private static void setPrice(PreparedStatement pstmt, int index, Price price) throws SQLException {
+        if (price == null) {
+            pstmt.setNull(index, Types.NUMERIC);
+            pstmt.setNull(index + 1, Types.VARCHAR);
+        } else {
+            pstmt.setBigDecimal(index, price.getAmount());
+            pstmt.setString(index + 1, price.getCurrency());
+        }
+    }
+}
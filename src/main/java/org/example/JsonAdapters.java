@@ -0,0 +1,175 @@
+package org.example;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * TypeAdapters escritos a mano para los modelos de la API y la instancia Gson compartida.
+ * Leen y escriben los campos directamente (sin reflexión), omiten los nulos y
+ * rechazan campos desconocidos con JsonSyntaxException.
+ */
+public final class JsonAdapters {
+
+    /** Gson compartido por Main, OfferService y JsonResponses */
+    public static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapter(Item.class, new ItemAdapter().nullSafe())
+            .registerTypeAdapter(User.class, new UserAdapter().nullSafe())
+            .registerTypeAdapter(Offer.class, new OfferAdapter().nullSafe())
+            .registerTypeAdapter(Main.Message.class, new MessageAdapter().nullSafe())
+            .create();
+
+    private JsonAdapters() { }
+
+    static final class ItemAdapter extends TypeAdapter<Item> {
+        @Override
+        public void write(JsonWriter out, Item item) throws IOException {
+            out.beginObject();
+            writeString(out, "id", item.getId());
+            writeString(out, "name", item.getName());
+            writeString(out, "description", item.getDescription());
+            writeString(out, "price", item.getPrice());
+            out.endObject();
+        }
+
+        @Override
+        public Item read(JsonReader in) throws IOException {
+            Item item = new Item();
+            in.beginObject();
+            while (in.hasNext()) {
+                String field = in.nextName();
+                switch (field) {
+                    case "id" -> item.setId(readString(in));
+                    case "name" -> item.setName(readString(in));
+                    case "description" -> item.setDescription(readString(in));
+                    case "price" -> item.setPrice(readString(in));
+                    default -> throw unknownField(in, field);
+                }
+            }
+            in.endObject();
+            return item;
+        }
+    }
+
+    static final class UserAdapter extends TypeAdapter<User> {
+        @Override
+        public void write(JsonWriter out, User user) throws IOException {
+            out.beginObject();
+            writeString(out, "id", user.getId());
+            writeString(out, "name", user.getName());
+            writeString(out, "email", user.getEmail());
+            out.endObject();
+        }
+
+        @Override
+        public User read(JsonReader in) throws IOException {
+            User user = new User();
+            in.beginObject();
+            while (in.hasNext()) {
+                String field = in.nextName();
+                switch (field) {
+                    case "id" -> user.setId(readString(in));
+                    case "name" -> user.setName(readString(in));
+                    case "email" -> user.setEmail(readString(in));
+                    default -> throw unknownField(in, field);
+                }
+            }
+            in.endObject();
+            return user;
+        }
+    }
+
+    static final class OfferAdapter extends TypeAdapter<Offer> {
+        @Override
+        public void write(JsonWriter out, Offer offer) throws IOException {
+            out.beginObject();
+            if (offer.getDbId() != null) {
+                out.name("dbId").value(offer.getDbId());
+            }
+            writeString(out, "id", offer.getId());
+            writeString(out, "name", offer.getName());
+            writeString(out, "email", offer.getEmail());
+            out.name("amount").value(offer.getAmount());
+            out.endObject();
+        }
+
+        @Override
+        public Offer read(JsonReader in) throws IOException {
+            Offer offer = new Offer();
+            in.beginObject();
+            while (in.hasNext()) {
+                String field = in.nextName();
+                switch (field) {
+                    case "dbId" -> {
+                        if (in.peek() == JsonToken.NULL) {
+                            in.nextNull();
+                        } else {
+                            offer.setDbId(in.nextLong());
+                        }
+                    }
+                    case "id" -> offer.setId(readString(in));
+                    case "name" -> offer.setName(readString(in));
+                    case "email" -> offer.setEmail(readString(in));
+                    case "amount" -> {
+                        if (in.peek() == JsonToken.NULL) {
+                            in.nextNull();
+                        } else {
+                            offer.setAmount(in.nextDouble());
+                        }
+                    }
+                    default -> throw unknownField(in, field);
+                }
+            }
+            in.endObject();
+            return offer;
+        }
+    }
+
+    static final class MessageAdapter extends TypeAdapter<Main.Message> {
+        @Override
+        public void write(JsonWriter out, Main.Message message) throws IOException {
+            out.beginObject();
+            writeString(out, "message", message.getMessage());
+            out.endObject();
+        }
+
+        @Override
+        public Main.Message read(JsonReader in) throws IOException {
+            String message = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                String field = in.nextName();
+                if (!"message".equals(field)) {
+                    throw unknownField(in, field);
+                }
+                message = readString(in);
+            }
+            in.endObject();
+            return new Main.Message(message);
+        }
+    }
+
+    private static void writeString(JsonWriter out, String name, String value) throws IOException {
+        if (value != null) {
+            out.name(name).value(value);
+        }
+    }
+
+    private static String readString(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextString();
+    }
+
+    private static JsonSyntaxException unknownField(JsonReader in, String field) {
+        return new JsonSyntaxException("Unknown field '" + field + "' at " + in.getPath());
+    }
+}
@@ -0,0 +1,233 @@
+package org.example;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonWriter;
+import spark.Response;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+/**
+ * Escribe respuestas JSON directamente en el output stream del servlet.
+ * Usa buffers UTF-8 reutilizables (pool) y los TypeAdapter de Item, User, Offer
+ * y Message resueltos una sola vez, sin construir Strings intermedios.
+ */
+public class JsonResponses {
+    private static final int BUFFER_SIZE = 8192;
+    private static final int MAX_POOLED_BUFFERS = 64;
+
+    private final Gson gson;
+    private final Map<Class<?>, TypeAdapter<?>> adapters = new ConcurrentHashMap<>();
+
+    private final ConcurrentLinkedQueue<Utf8Writer> pool = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooled = new AtomicInteger();
+
+    public JsonResponses(Gson gson) {
+        this.gson = gson;
+        adapters.put(Item.class, gson.getAdapter(Item.class));
+        adapters.put(User.class, gson.getAdapter(User.class));
+        adapters.put(Offer.class, gson.getAdapter(Offer.class));
+        adapters.put(Main.Message.class, gson.getAdapter(Main.Message.class));
+    }
+
+    /**
+     * Cuerpo JSON escrito campo a campo
+     */
+    @FunctionalInterface
+    public interface JsonBody {
+        void writeTo(JsonWriter out) throws IOException;
+    }
+
+    /**
+     * Adapter registrado para el tipo (se resuelve una sola vez)
+     */
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> adapter(Class<T> type) {
+        return (TypeAdapter<T>) adapters.computeIfAbsent(type, gson::getAdapter);
+    }
+
+    /**
+     * Serializa un valor en la respuesta; devuelve "" para que Spark no escriba nada más
+     */
+    @SuppressWarnings("unchecked")
+    public String send(Response res, Object value) throws IOException {
+        if (value == null) {
+            return send(res, JsonWriter::nullValue);
+        }
+        TypeAdapter<Object> adapter = (TypeAdapter<Object>) adapter(value.getClass());
+        return send(res, out -> adapter.write(out, value));
+    }
+
+    /**
+     * Escribe una colección como arreglo JSON usando el adapter del tipo de elemento
+     */
+    public <T> String sendList(Response res, Iterable<T> values, Class<T> type) throws IOException {
+        TypeAdapter<T> adapter = adapter(type);
+        return send(res, out -> {
+            out.beginArray();
+            for (T value : values) {
+                adapter.write(out, value);
+            }
+            out.endArray();
+        });
+    }
+
+    /**
+     * Escribe un cuerpo JSON arbitrario directamente en la respuesta
+     */
+    public String send(Response res, JsonBody body) throws IOException {
+        res.type("application/json");
+        Utf8Writer writer = borrow();
+        try {
+            // Si el cuerpo cabe en el buffer se conoce su tamaño (el gzip no comprime los pequeños)
+            writer.bind(res.raw().getOutputStream(), res.raw()::setContentLength);
+            JsonWriter out = new JsonWriter(writer);
+            // Mismas opciones que Gson.toJson por defecto
+            out.setSerializeNulls(false);
+            out.setHtmlSafe(true);
+            body.writeTo(out);
+            out.flush();
+            writer.finish();
+        } finally {
+            writer.unbind();
+            release(writer);
+        }
+        return "";
+    }
+
+    private Utf8Writer borrow() {
+        Utf8Writer writer = pool.poll();
+        if (writer == null) {
+            return new Utf8Writer();
+        }
+        pooled.decrementAndGet();
+        return writer;
+    }
+
+    private void release(Utf8Writer writer) {
+        if (pooled.incrementAndGet() <= MAX_POOLED_BUFFERS) {
+            pool.offer(writer);
+        } else {
+            pooled.decrementAndGet();
+        }
+    }
+
+    /**
+     * Writer con buffer propio que codifica a UTF-8 sobre un OutputStream intercambiable
+     */
+    static final class Utf8Writer extends Writer {
+        private final char[] chars = new char[BUFFER_SIZE];
+        // UTF-8 usa como máximo 3 bytes por char UTF-16
+        private final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE * 3);
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private int count;
+        private OutputStream out;
+        private IntConsumer lengthKnown;
+        private boolean written;
+
+        /**
+         * lengthKnown recibe el tamaño total si todo el cuerpo se escribe de una vez al final
+         */
+        void bind(OutputStream out, IntConsumer lengthKnown) {
+            this.out = out;
+            this.lengthKnown = lengthKnown;
+            this.count = 0;
+            this.written = false;
+            encoder.reset();
+        }
+
+        void unbind() {
+            this.out = null;
+            this.lengthKnown = null;
+            this.count = 0;
+        }
+
+        /**
+         * Codifica lo pendiente (incluido un surrogate suelto) y vacía el stream
+         */
+        void finish() throws IOException {
+            drain(true);
+            out.flush();
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            if (count == chars.length) {
+                drain(false);
+            }
+            chars[count++] = (char) c;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            while (len > 0) {
+                if (count == chars.length) {
+                    drain(false);
+                }
+                int n = Math.min(len, chars.length - count);
+                System.arraycopy(cbuf, off, chars, count, n);
+                count += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            while (len > 0) {
+                if (count == chars.length) {
+                    drain(false);
+                }
+                int n = Math.min(len, chars.length - count);
+                str.getChars(off, off + n, chars, count);
+                count += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            // El vaciado real ocurre al llenarse el buffer o en finish()
+        }
+
+        @Override
+        public void close() throws IOException {
+            finish();
+        }
+
+        private void drain(boolean endOfInput) throws IOException {
+            CharBuffer in = CharBuffer.wrap(chars, 0, count);
+            bytes.clear();
+            encoder.encode(in, bytes, endOfInput);
+            if (endOfInput) {
+                encoder.flush(bytes);
+                encoder.reset();
+                if (!written && lengthKnown != null) {
+                    lengthKnown.accept(bytes.position());
+                }
+            }
+            out.write(bytes.array(), 0, bytes.position());
+            written = true;
+
+            // Un high surrogate al final del buffer queda pendiente para la siguiente vuelta
+            int left = in.remaining();
+            System.arraycopy(chars, in.position(), chars, 0, left);
+            count = left;
+        }
+    }
+}
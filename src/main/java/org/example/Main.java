@@ -4,18 +4,30 @@ import static spark.Spark.*;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import spark.ModelAndView;
-import spark.template.mustache.MustacheTemplateEngine;
+import spark.Request;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 
 public class Main {
-    private static final Gson gson = new Gson();
+    private static final Gson gson = JsonAdapters.GSON;
+    private static final JsonResponses json = new JsonResponses(gson);
+    private static final StaticAssets assets = StaticAssets.load("public");
+    private static final Views views = new Views(assets);
     private static final Logger logger = LoggerFactory.getLogger(Main.class);
 
     public static void main(String[] args) {
@@ -33,33 +45,81 @@ public class Main {
             port(55603);
         }
 
+        // SERVER_THREADS=virtual: cada petición en su propio hilo virtual (Java 21+); métricas por ruta y gzip
+        boolean virtualThreads = ServerThreads.configure(handler -> Metrics.instrument(Compression.gzip(handler)));
+
         // ============================================
-        // 🔥 INICIALIZAR BASE DE DATOS POSTGRESQL
+        // 🔥 INICIALIZAR BASE DE DATOS (DB_MODE: postgres, h2-file, h2-mem)
         // ============================================
         try {
-            logger.info("🚀 Inicializando base de datos PostgreSQL...");
+            logger.info("🚀 Inicializando base de datos...");
             DatabaseManager.init();
             DatabaseManager.testConnection();
-            logger.info("✅ Base de datos lista para usar");
+            logger.info("✅ Base de datos lista para usar ({})", DatabaseManager.getMode().getId());
         } catch (Exception e) {
             logger.error("❌ Error crítico al inicializar base de datos", e);
-            logger.error("💡 Verifica que PostgreSQL esté corriendo y la contraseña sea correcta");
+            logger.error("💡 Verifica DB_MODE/DB_URL; con PostgreSQL, que esté corriendo y la contraseña sea correcta");
             System.exit(1); // Salir si no hay base de datos
         }
+        if (virtualThreads) {
+            DatabaseManager.limitConcurrency();
+        }
 
-        // Agregar shutdown hook para cerrar conexión al salir
+        // Inicializar servicios (usan la base de datos configurada)
+        UserService service = new UserService();
+        ItemService itemService = new ItemService();
+        OfferService offerService = new OfferService();
+        offerService.warmUp();
+        itemService.buildSearchIndex();
+        service.buildSearchIndex();
+
+        // OFFER_WRITE_MODE=async: las ofertas se encolan y se escriben por lotes en segundo plano
+        OfferWriteBehind offerWriter = OfferWriteBehind.enabled() ? OfferWriteBehind.fromEnv(offerService) : null;
+
+        // OFFER_WRITE_MODE=log: las ofertas se confirman al quedar en el registro local en disco
+        OfferLog offerLog = null;
+        if (OfferLog.enabled()) {
+            try {
+                offerLog = OfferLog.open(OfferLog.directoryFromEnv());
+                offerLog.startReplayer(offerService::addLogged);
+            } catch (IOException e) {
+                logger.error("❌ No se pudo abrir el registro de ofertas", e);
+                System.exit(1);
+            }
+        }
+        OfferLog offerLogRef = offerLog;
+
+        // Agregar shutdown hook para cerrar conexión al salir (antes se escriben las ofertas pendientes)
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            if (offerWriter != null) {
+                offerWriter.shutdown(10_000);
+            }
+            if (offerLogRef != null) {
+                offerLogRef.close(offerService::addLogged, 10_000);
+            }
             logger.info("🔌 Cerrando conexión a base de datos...");
             DatabaseManager.close();
         }));
 
-        // Inicializar servicios (ahora usan PostgreSQL)
-        UserService service = new UserService();
-        ItemService itemService = new ItemService();
-        OfferService offerService = new OfferService();
+        // Importaciones masivas (arreglo JSON o NDJSON), escritas por lotes
+        BulkImport<Item> itemImport = new BulkImport<>("items", json.adapter(Item.class),
+                item -> {
+                    if (item.getId() == null || item.getName() == null) {
+                        return "Invalid item data";
+                    }
+                    Price.parse(item.getPrice());
+                    return null;
+                },
+                Item::getId, itemService::addAll);
+        BulkImport<Offer> offerImport = new BulkImport<>("ofertas", json.adapter(Offer.class),
+                offer -> offer.getName() == null || offer.getEmail() == null || offer.getId() == null
+                        ? "Invalid offer data" : null,
+                Offer::getId, offerService::addAll);
 
         // Configurar carpeta de archivos estáticos (CSS, JS)
         staticFiles.location("/public");
+        // Los mismos archivos en memoria, con huella en la URL, gzip previo y caché de un año
+        get(StaticAssets.PREFIX + "*", assets::serve);
 
         // ============================================
         // RUTAS JSON (API)
@@ -70,7 +130,60 @@ public class Main {
         path("/users", () -> {
             get("", (req, res) -> {
                 res.type("application/json");
-                return gson.toJson(service.getAll());
+                TypeAdapter<User> userAdapter = json.adapter(User.class);
+                if (wantsStream(req)) {
+                    return json.send(res, out -> {
+                        out.beginArray();
+                        service.streamAll(u -> userAdapter.write(out, u));
+                        out.endArray();
+                    });
+                }
+                if (wantsPage(req)) {
+                    try {
+                        Page<User> page = service.getPage(req.queryParams("cursor"),
+                                Page.parseLimit(req.queryParams("limit")));
+                        return json.send(res, out -> {
+                            out.beginObject().name("users").beginArray();
+                            for (User u : page.getItems()) {
+                                userAdapter.write(out, u);
+                            }
+                            out.endArray().name("next").value(page.getNext()).endObject();
+                        });
+                    } catch (IllegalArgumentException e) {
+                        res.status(400);
+                        return json.send(res, new Message(e.getMessage()));
+                    }
+                }
+                return json.sendList(res, service.getAll(), User.class);
+            });
+
+            // GET /search?q=...&limit=N: usuarios por nombre o email, con el índice en memoria
+            get("/search", (req, res) -> {
+                res.type("application/json");
+                String query = req.queryParams("q");
+                if (query == null || query.isBlank()) {
+                    res.status(400);
+                    return json.send(res, new Message("Missing query parameter 'q'"));
+                }
+                try {
+                    SearchIndex.Hits<User> hits = service.search(query, Page.parseLimit(req.queryParams("limit")));
+                    return json.send(res, out -> {
+                        out.beginObject().name("users").beginArray();
+                        for (SearchIndex.Hit<User> hit : hits.getHits()) {
+                            User u = hit.getDoc();
+                            out.beginObject()
+                                    .name("id").value(u.getId())
+                                    .name("name").value(u.getName())
+                                    .name("email").value(u.getEmail())
+                                    .name("score").value(hit.getScore())
+                                    .endObject();
+                        }
+                        out.endArray().name("total").value(hits.getTotal()).endObject();
+                    });
+                } catch (IllegalArgumentException e) {
+                    res.status(400);
+                    return json.send(res, new Message(e.getMessage()));
+                }
             });
 
             get("/:id", (req, res) -> {
@@ -79,59 +192,63 @@ public class Main {
                 User u = service.get(id);
                 if (u == null) {
                     res.status(404);
-                    return gson.toJson(new Message("User not found"));
+                    return json.send(res, new Message("User not found"));
                 }
-                return gson.toJson(u);
+                return json.send(res, u);
             });
 
             post("/:id", (req, res) -> {
                 res.type("application/json");
                 String id = req.params(":id");
-                if (service.exists(id)) {
-                    res.status(409);
-                    return gson.toJson(new Message("User already exists"));
-                }
                 try {
                     User user = gson.fromJson(req.body(), User.class);
                     if (user == null) {
                         res.status(400);
-                        return gson.toJson(new Message("Invalid JSON or empty body"));
+                        return json.send(res, new Message("Invalid JSON or empty body"));
                     }
                     user.setId(id);
-                    service.add(user);
+                    if (!service.add(user)) {
+                        res.status(409);
+                        return json.send(res, new Message("User already exists"));
+                    }
                     res.status(201);
-                    return gson.toJson(user);
+                    return json.send(res, user);
                 } catch (JsonSyntaxException e) {
                     res.status(400);
-                    return gson.toJson(new Message("Invalid JSON"));
+                    return json.send(res, new Message("Invalid JSON"));
+                } catch (UserService.EmailTakenException e) {
+                    res.status(409);
+                    return json.send(res, new Message("Email already in use"));
                 } catch (RuntimeException e) {
                     res.status(500);
-                    return gson.toJson(new Message("Database error: " + e.getMessage()));
+                    return json.send(res, new Message("Database error: " + e.getMessage()));
                 }
             });
 
             put("/:id", (req, res) -> {
                 res.type("application/json");
                 String id = req.params(":id");
-                if (!service.exists(id)) {
-                    res.status(404);
-                    return gson.toJson(new Message("User not found"));
-                }
                 try {
                     User user = gson.fromJson(req.body(), User.class);
                     if (user == null) {
                         res.status(400);
-                        return gson.toJson(new Message("Invalid JSON or empty body"));
+                        return json.send(res, new Message("Invalid JSON or empty body"));
                     }
                     user.setId(id);
-                    service.update(id, user);
-                    return gson.toJson(user);
+                    if (!service.update(id, user)) {
+                        res.status(404);
+                        return json.send(res, new Message("User not found"));
+                    }
+                    return json.send(res, user);
                 } catch (JsonSyntaxException e) {
                     res.status(400);
-                    return gson.toJson(new Message("Invalid JSON"));
+                    return json.send(res, new Message("Invalid JSON"));
+                } catch (UserService.EmailTakenException e) {
+                    res.status(409);
+                    return json.send(res, new Message("Email already in use"));
                 } catch (RuntimeException e) {
                     res.status(500);
-                    return gson.toJson(new Message("Database error: " + e.getMessage()));
+                    return json.send(res, new Message("Database error: " + e.getMessage()));
                 }
             });
 
@@ -140,27 +257,26 @@ public class Main {
                 String id = req.params(":id");
                 if (service.exists(id)) {
                     res.status(200);
-                    return gson.toJson(new Message("Exists"));
+                    return json.send(res, new Message("Exists"));
                 } else {
                     res.status(404);
-                    return gson.toJson(new Message("Not found"));
+                    return json.send(res, new Message("Not found"));
                 }
             });
 
             delete("/:id", (req, res) -> {
                 res.type("application/json");
                 String id = req.params(":id");
-                if (!service.exists(id)) {
-                    res.status(404);
-                    return gson.toJson(new Message("User not found"));
-                }
                 try {
-                    service.delete(id);
+                    if (!service.delete(id)) {
+                        res.status(404);
+                        return json.send(res, new Message("User not found"));
+                    }
                     res.status(204);
                     return "";
                 } catch (RuntimeException e) {
                     res.status(500);
-                    return gson.toJson(new Message("Database error: " + e.getMessage()));
+                    return json.send(res, new Message("Database error: " + e.getMessage()));
                 }
             });
         });
@@ -169,28 +285,93 @@ public class Main {
         path("/api/items", () -> {
             get("", (req, res) -> {
                 res.type("application/json");
-                List<Map<String, String>> out = new ArrayList<>();
-                for (Item it : itemService.getAll()) {
-                    Map<String, String> m = new HashMap<>();
-                    m.put("id", it.getId());
-                    m.put("name", it.getName());
-                    m.put("price", it.getPrice());
-                    out.add(m);
+                if (ConditionalGet.notModified(req, res, CatalogVersions.items())) {
+                    return "";
+                }
+                if (wantsStream(req)) {
+                    return json.send(res, out -> {
+                        out.beginArray();
+                        itemService.streamAll(it -> writeItemSummary(out, it));
+                        out.endArray();
+                    });
+                }
+                if (wantsPage(req)) {
+                    try {
+                        Page<Item> page = itemService.getPage(req.queryParams("cursor"),
+                                Page.parseLimit(req.queryParams("limit")));
+                        return json.send(res, out -> {
+                            out.beginObject().name("items").beginArray();
+                            for (Item it : page.getItems()) {
+                                writeItemSummary(out, it);
+                            }
+                            out.endArray().name("next").value(page.getNext()).endObject();
+                        });
+                    } catch (IllegalArgumentException e) {
+                        res.status(400);
+                        return json.send(res, new Message(e.getMessage()));
+                    }
+                }
+                Collection<Item> items = itemService.getAll();
+                return json.send(res, out -> {
+                    out.beginArray();
+                    for (Item it : items) {
+                        writeItemSummary(out, it);
+                    }
+                    out.endArray();
+                });
+            });
+
+            // GET /search?q=...&limit=N: items por nombre y descripción, con el índice en memoria
+            get("/search", (req, res) -> {
+                res.type("application/json");
+                String query = req.queryParams("q");
+                if (query == null || query.isBlank()) {
+                    res.status(400);
+                    return json.send(res, new Message("Missing query parameter 'q'"));
+                }
+                try {
+                    int limit = Page.parseLimit(req.queryParams("limit"));
+                    if (ConditionalGet.notModified(req, res, CatalogVersions.items())) {
+                        return "";
+                    }
+                    SearchIndex.Hits<Item> hits = itemService.search(query, limit);
+                    return json.send(res, out -> {
+                        out.beginObject().name("items").beginArray();
+                        for (SearchIndex.Hit<Item> hit : hits.getHits()) {
+                            Item it = hit.getDoc();
+                            out.beginObject()
+                                    .name("id").value(it.getId())
+                                    .name("name").value(it.getName())
+                                    .name("price").value(it.getPrice())
+                                    .name("score").value(hit.getScore())
+                                    .endObject();
+                        }
+                        out.endArray().name("total").value(hits.getTotal()).endObject();
+                    });
+                } catch (IllegalArgumentException e) {
+                    res.status(400);
+                    return json.send(res, new Message(e.getMessage()));
                 }
-                return gson.toJson(out);
             });
 
             get("/:id", (req, res) -> {
                 res.type("application/json");
                 String id = req.params(":id");
+                ConditionalGet.Tag tag = ConditionalGet.tag(CatalogVersions.item(id));
                 Item it = itemService.get(id);
                 if (it == null) {
                     res.status(404);
-                    return gson.toJson(new Message("Item not found"));
+                    return json.send(res, new Message("Item not found"));
+                }
+                if (ConditionalGet.notModified(req, res, tag)) {
+                    return "";
                 }
-                return gson.toJson(it);
+                return json.send(res, it);
             });
 
+            // POST /bulk: importación masiva con un resultado por registro
+            post("/bulk", (req, res) -> itemImport.handle(req, res, json));
+
             // NUEVO: POST para crear items
             post("", (req, res) -> {
                 res.type("application/json");
@@ -198,46 +379,73 @@ public class Main {
                     Item item = gson.fromJson(req.body(), Item.class);
                     if (item == null || item.getId() == null || item.getName() == null) {
                         res.status(400);
-                        return gson.toJson(new Message("Invalid item data"));
+                        return json.send(res, new Message("Invalid item data"));
                     }
-                    if (itemService.exists(item.getId())) {
+                    if (!itemService.add(item)) {
                         res.status(409);
-                        return gson.toJson(new Message("Item already exists"));
+                        return json.send(res, new Message("Item already exists"));
                     }
-                    itemService.add(item);
                     res.status(201);
-                    return gson.toJson(item);
+                    return json.send(res, item);
                 } catch (JsonSyntaxException e) {
                     res.status(400);
-                    return gson.toJson(new Message("Invalid JSON"));
+                    return json.send(res, new Message("Invalid JSON"));
+                } catch (IllegalArgumentException e) {
+                    res.status(400);
+                    return json.send(res, new Message(e.getMessage()));
                 } catch (RuntimeException e) {
                     res.status(500);
-                    return gson.toJson(new Message("Database error: " + e.getMessage()));
+                    return json.send(res, new Message("Database error: " + e.getMessage()));
                 }
             });
 
-            // NUEVO: PUT para actualizar items
-            put("/:id", (req, res) -> {
-                res.type("application/json");
+            // GET /:id/stream: Server-Sent Events con el número de ofertas y la más alta del item
+            get("/:id/stream", (req, res) -> {
                 String id = req.params(":id");
                 if (!itemService.exists(id)) {
                     res.status(404);
-                    return gson.toJson(new Message("Item not found"));
+                    return json.send(res, new Message("Item not found"));
                 }
+
+                HttpServletResponse raw = res.raw();
+                raw.setStatus(200);
+                raw.setContentType("text/event-stream");
+                raw.setCharacterEncoding("UTF-8");
+                raw.setHeader("Cache-Control", "no-cache");
+                raw.setHeader("X-Accel-Buffering", "no");
+                // Con la respuesta ya enviada Spark no escribe cuerpo ni la cierra
+                raw.flushBuffer();
+
+                AsyncContext context = req.raw().startAsync();
+                context.setTimeout(0);
+                offerService.subscribe(id, OfferHub.sseClient(context));
+                return "";
+            });
+
+            // NUEVO: PUT para actualizar items
+            put("/:id", (req, res) -> {
+                res.type("application/json");
+                String id = req.params(":id");
                 try {
                     Item item = gson.fromJson(req.body(), Item.class);
                     if (item == null) {
                         res.status(400);
-                        return gson.toJson(new Message("Invalid JSON"));
+                        return json.send(res, new Message("Invalid JSON"));
                     }
-                    itemService.update(id, item);
-                    return gson.toJson(item);
+                    if (!itemService.update(id, item)) {
+                        res.status(404);
+                        return json.send(res, new Message("Item not found"));
+                    }
+                    return json.send(res, item);
                 } catch (JsonSyntaxException e) {
                     res.status(400);
-                    return gson.toJson(new Message("Invalid JSON"));
+                    return json.send(res, new Message("Invalid JSON"));
+                } catch (IllegalArgumentException e) {
+                    res.status(400);
+                    return json.send(res, new Message(e.getMessage()));
                 } catch (RuntimeException e) {
                     res.status(500);
-                    return gson.toJson(new Message("Database error: " + e.getMessage()));
+                    return json.send(res, new Message("Database error: " + e.getMessage()));
                 }
             });
 
@@ -245,23 +453,27 @@ public class Main {
             delete("/:id", (req, res) -> {
                 res.type("application/json");
                 String id = req.params(":id");
-                if (!itemService.exists(id)) {
-                    res.status(404);
-                    return gson.toJson(new Message("Item not found"));
-                }
                 try {
-                    itemService.delete(id);
+                    if (!itemService.delete(id)) {
+                        res.status(404);
+                        return json.send(res, new Message("Item not found"));
+                    }
+                    offerService.itemDeleted(id);
+                    views.evict("item:" + id);
                     res.status(204);
                     return "";
                 } catch (RuntimeException e) {
                     res.status(500);
-                    return gson.toJson(new Message("Database error: " + e.getMessage()));
+                    return json.send(res, new Message("Database error: " + e.getMessage()));
                 }
             });
         });
 
         // --- RUTAS DE OFERTAS (API) ---
         path("/api/offers", () -> {
+            // POST /bulk: importación masiva con un resultado por registro
+            post("/bulk", (req, res) -> offerImport.handle(req, res, json));
+
             // POST: Crear una nueva oferta
             post("", (req, res) -> {
                 res.type("application/json");
@@ -271,46 +483,122 @@ public class Main {
                     if (offer == null || offer.getName() == null ||
                             offer.getEmail() == null || offer.getId() == null) {
                         res.status(400);
-                        return gson.toJson(new Message("Invalid offer data"));
+                        return json.send(res, new Message("Invalid offer data"));
                     }
 
                     // Verificar que el item existe
                     if (!itemService.exists(offer.getId())) {
                         res.status(404);
-                        return gson.toJson(new Message("Item not found"));
+                        return json.send(res, new Message("Item not found"));
+                    }
+
+                    if (offerLogRef != null) {
+                        long logId = offerLogRef.append(offer);
+                        res.status(202);
+                        TypeAdapter<Offer> offerAdapter = json.adapter(Offer.class);
+                        return json.send(res, out -> {
+                            out.beginObject().name("provisionalId").value("log-" + logId).name("offer");
+                            offerAdapter.write(out, offer);
+                            out.endObject();
+                        });
+                    }
+
+                    if (offerWriter != null) {
+                        String provisionalId = offerWriter.submit(offer);
+                        if (provisionalId == null) {
+                            res.status(429);
+                            res.header("Retry-After", "1");
+                            return json.send(res, new Message("Too many pending offers, retry later"));
+                        }
+                        res.status(202);
+                        TypeAdapter<Offer> offerAdapter = json.adapter(Offer.class);
+                        return json.send(res, out -> {
+                            out.beginObject().name("provisionalId").value(provisionalId).name("offer");
+                            offerAdapter.write(out, offer);
+                            out.endObject();
+                        });
                     }
 
                     offerService.add(offer);
                     res.status(201);
-                    return gson.toJson(offer);
+                    return json.send(res, offer);
 
                 } catch (JsonSyntaxException e) {
                     res.status(400);
-                    return gson.toJson(new Message("Invalid JSON"));
+                    return json.send(res, new Message("Invalid JSON"));
+                } catch (IOException e) {
+                    logger.error("❌ Error al escribir en el registro de ofertas", e);
+                    res.status(503);
+                    return json.send(res, new Message("Offer log unavailable: " + e.getMessage()));
                 } catch (RuntimeException e) {
                     res.status(500);
-                    return gson.toJson(new Message("Database error: " + e.getMessage()));
+                    return json.send(res, new Message("Database error: " + e.getMessage()));
                 }
             });
 
             // GET: Obtener todas las ofertas
             get("", (req, res) -> {
                 res.type("application/json");
-                Map<String, Object> response = new HashMap<>();
-                response.put("offers", offerService.getAll());
-                return gson.toJson(response);
+                offerService.refreshSeeds();
+                if (ConditionalGet.notModified(req, res, CatalogVersions.offers())) {
+                    return "";
+                }
+                TypeAdapter<Offer> offerAdapter = json.adapter(Offer.class);
+                if (wantsStream(req)) {
+                    return json.send(res, out -> {
+                        out.beginObject().name("offers").beginArray();
+                        offerService.streamAll(o -> offerAdapter.write(out, o));
+                        out.endArray().endObject();
+                    });
+                }
+                if (wantsPage(req)) {
+                    try {
+                        Page<Offer> page = offerService.getPage(req.queryParams("cursor"),
+                                Page.parseLimit(req.queryParams("limit")));
+                        return json.send(res, out -> {
+                            out.beginObject().name("offers").beginArray();
+                            for (Offer o : page.getItems()) {
+                                offerAdapter.write(out, o);
+                            }
+                            out.endArray().name("next").value(page.getNext()).endObject();
+                        });
+                    } catch (IllegalArgumentException e) {
+                        res.status(400);
+                        return json.send(res, new Message(e.getMessage()));
+                    }
+                }
+                List<Offer> offers = offerService.getAll();
+                return json.send(res, out -> {
+                    out.beginObject().name("offers").beginArray();
+                    for (Offer o : offers) {
+                        offerAdapter.write(out, o);
+                    }
+                    out.endArray().endObject();
+                });
             });
 
             // NUEVO: GET ofertas por item
             get("/item/:itemId", (req, res) -> {
                 res.type("application/json");
                 String itemId = req.params(":itemId");
+                offerService.refreshSeeds();
+                ConditionalGet.Tag tag = ConditionalGet.tag(CatalogVersions.offers(itemId));
+                // Un item que no existe no lleva ETag: su lista vacía no se valida
+                if (itemService.exists(itemId) && ConditionalGet.notModified(req, res, tag)) {
+                    return "";
+                }
                 List<Offer> offers = offerService.getByItemId(itemId);
-                Map<String, Object> response = new HashMap<>();
-                response.put("itemId", itemId);
-                response.put("count", offers.size());
-                response.put("offers", offers);
-                return gson.toJson(response);
+                TypeAdapter<Offer> offerAdapter = json.adapter(Offer.class);
+                return json.send(res, out -> {
+                    out.beginObject()
+                            .name("itemId").value(itemId)
+                            .name("count").value(offers.size())
+                            .name("offers").beginArray();
+                    for (Offer o : offers) {
+                        offerAdapter.write(out, o);
+                    }
+                    out.endArray().endObject();
+                });
             });
         });
 
@@ -318,70 +606,103 @@ public class Main {
         // RUTAS HTML (VISTAS CON MUSTACHE)
         // ============================================
 
-        // Vista: Lista de items
+        // Vista: Lista de items (página guardada hasta que cambie el catálogo; 304 si el cliente ya la tiene)
         get("/items", (req, res) -> {
-            Map<String, Object> model = new HashMap<>();
-            model.put("items", itemService.getAll());
-            return new ModelAndView(model, "items-list.mustache");
-        }, new MustacheTemplateEngine());
+            offerService.refreshSeeds();
+            CatalogVersions.Version[] versions = {CatalogVersions.items(), CatalogVersions.offers()};
+            if (ConditionalGet.notModified(req, res, versions)) {
+                return "";
+            }
+            return views.cached(res, "items", ConditionalGet.etag(versions), views.itemsList, () -> {
+                // Items y resumen de ofertas en una sola consulta; las ofertas semilla se suman en memoria
+                List<Map<String, Object>> viewItems = new ArrayList<>();
+                for (ItemService.Listing listing : itemService.getAllWithStats()) {
+                    Item it = listing.getItem();
+                    OfferStats stats = offerService.withSeedOffers(it.getId(), listing.getStats());
+                    Map<String, Object> m = new HashMap<>();
+                    m.put("id", it.getId());
+                    m.put("name", it.getName());
+                    m.put("price", it.getPrice());
+                    m.put("offerCount", stats.getOfferCount());
+                    if (stats.getHighestOffer() != null) {
+                        m.put("highestOffer", String.format(Locale.ROOT, "%.2f", stats.getHighestOffer()));
+                    }
+                    viewItems.add(m);
+                }
+                return new Object[] {Map.of("items", viewItems)};
+            });
+        });
 
-        // Vista: Detalle de un item
+        // Vista: Detalle de un item (se regenera si cambia el item o sus ofertas)
         get("/items/:id", (req, res) -> {
             String id = req.params(":id");
+            offerService.refreshSeeds();
+            ConditionalGet.Tag tag = ConditionalGet.tag(CatalogVersions.item(id), CatalogVersions.offers(id));
             Item item = itemService.get(id);
 
-            Map<String, Object> model = new HashMap<>();
-
             if (item == null) {
                 res.status(404);
+                Map<String, Object> model = new HashMap<>();
                 model.put("id", "");
                 model.put("name", "Item no encontrado");
                 model.put("description", "");
                 model.put("price", "");
                 model.put("errorMessage", "Item con id '" + id + "' no fue encontrado.");
-                return new ModelAndView(model, "item-detail.mustache");
+                return views.render(res, views.itemDetail, model);
             }
-
-            model.put("id", item.getId());
-            model.put("name", item.getName());
-            model.put("description", item.getDescription());
-            model.put("price", item.getPrice());
-
-            // NUEVO: Agregar información de ofertas
-            List<Offer> offers = offerService.getByItemId(id);
-            model.put("offerCount", offers.size());
-
-            Offer highestOffer = offerService.getHighestOffer(id);
-            if (highestOffer != null) {
-                model.put("highestOffer", highestOffer.getAmount());
+            if (ConditionalGet.notModified(req, res, tag)) {
+                return "";
             }
 
-            return new ModelAndView(model, "item-detail.mustache");
-        }, new MustacheTemplateEngine());
+            return views.cached(res, "item:" + id, tag.getEtag(), views.itemDetail, () -> {
+                // Información de ofertas (una lectura de item_offer_stats); el item se usa tal cual como scope
+                OfferStats stats = offerService.getStats(id);
+                Map<String, Object> bids = new HashMap<>();
+                bids.put("offerCount", stats.getOfferCount());
+                if (stats.getHighestOffer() != null) {
+                    bids.put("highestOffer", String.format(Locale.ROOT, "%.2f", stats.getHighestOffer()));
+                }
+                return new Object[] {item, bids};
+            });
+        });
 
         // Vista: Lista de ofertas (HTML)
         get("/offers", (req, res) -> {
-            Map<String, Object> model = new HashMap<>();
-            List<Map<String, Object>> viewOffers = new ArrayList<>();
-
-            for (Offer o : offerService.getAll()) {
-                Map<String, Object> m = new HashMap<>();
-                m.put("name", o.getName());
-                m.put("email", o.getEmail());
-                m.put("id", o.getId());
-                m.put("amount", o.getAmount());
+            offerService.refreshSeeds();
+            CatalogVersions.Version[] versions = {CatalogVersions.items(), CatalogVersions.offers()};
+            if (ConditionalGet.notModified(req, res, versions)) {
+                return "";
+            }
+            return views.cached(res, "offers", ConditionalGet.etag(versions), views.offersList, () -> {
+                List<Map<String, Object>> viewOffers = new ArrayList<>();
+
+                // Cargar todos los items referenciados en una sola consulta (evita N+1)
+                List<Offer> offers = offerService.getAll();
+                Set<String> itemIds = new HashSet<>();
+                for (Offer o : offers) {
+                    itemIds.add(o.getId());
+                }
+                Map<String, Item> itemsById = itemService.getAll(itemIds);
 
-                Item it = itemService.get(o.getId());
-                m.put("itemName", it != null ? it.getName() : "(Item no encontrado)");
+                for (Offer o : offers) {
+                    Map<String, Object> m = new HashMap<>();
+                    m.put("name", o.getName());
+                    m.put("email", o.getEmail());
+                    m.put("id", o.getId());
+                    m.put("amount", o.getAmount());
 
-                viewOffers.add(m);
-            }
+                    Item it = itemsById.get(o.getId());
+                    m.put("itemName", it != null ? it.getName() : "(Item no encontrado)");
 
-            model.put("offers", viewOffers);
-            model.put("totalOffers", viewOffers.size());
+                    viewOffers.add(m);
+                }
 
-            return new ModelAndView(model, "offers-list.mustache");
-        }, new MustacheTemplateEngine());
+                Map<String, Object> model = new HashMap<>();
+                model.put("offers", viewOffers);
+                model.put("totalOffers", viewOffers.size());
+                return new Object[] {model};
+            });
+        });
 
         // Página de inicio - redirige a items
         get("/", (req, res) -> {
@@ -394,7 +715,20 @@ public class Main {
             res.type("application/json");
             Map<String, Object> health = new HashMap<>();
             health.put("status", "UP");
-            health.put("database", "PostgreSQL");
+            health.put("database", DatabaseManager.getMode().getId());
+            health.put("itemCache", itemService.cacheStats());
+            health.put("viewCache", views.stats());
+            health.put("itemSearch", itemService.searchStats());
+            health.put("userSearch", service.searchStats());
+            if (offerWriter != null) {
+                health.put("offerWriter", offerWriter.stats());
+            }
+            if (offerLogRef != null) {
+                health.put("offerLog", offerLogRef.stats());
+            }
+            health.put("streamSubscribers", offerService.subscriberCount());
+            health.put("serverThreads", virtualThreads ? "virtual" : "platform");
+            health.put("waitingForConnection", DatabaseManager.waitingForConnection());
 
             try {
                 DatabaseManager.testConnection();
@@ -403,7 +737,19 @@ public class Main {
                 health.put("dbConnection", "ERROR: " + e.getMessage());
             }
 
-            return gson.toJson(health);
+            return json.send(res, health);
+        });
+
+        // Métricas en formato de texto de Prometheus
+        get("/metrics", (req, res) -> {
+            res.type("text/plain; version=0.0.4; charset=utf-8");
+            return Metrics.render();
+        });
+
+        // Estado del pool de conexiones: si sube acquire falta pool, si sube usage las consultas son lentas
+        get("/metrics/pool", (req, res) -> {
+            res.type("application/json");
+            return json.send(res, DatabaseManager.poolMetrics());
         });
 
         // ============================================
@@ -414,14 +760,14 @@ public class Main {
         notFound((req, res) -> {
             res.type("application/json");
             res.status(404);
-            return gson.toJson(new Message("Endpoint not found: " + req.pathInfo()));
+            return json.send(res, new Message("Endpoint not found: " + req.pathInfo()));
         });
 
         // Error 500 - Internal Server Error
         internalServerError((req, res) -> {
             res.type("application/json");
             res.status(500);
-            return gson.toJson(new Message("Internal server error"));
+            return json.send(res, new Message("Internal server error"));
         });
 
         // Manejo de excepciones generales
@@ -432,20 +778,42 @@ public class Main {
             res.body(gson.toJson(new Message("Server error: " + e.getMessage())));
         });
 
-        // Log de todas las peticiones
-        after((req, res) -> {
-            logger.info("{} {} -> {}", req.requestMethod(), req.pathInfo(), res.status());
-        });
+        // El log de peticiones lo escribe RequestLog (muestreado, asíncrono) desde el handler de Metrics
 
         System.out.println("===========================================");
         System.out.println("🚀 Server started on port: " + port());
         System.out.println("🌐 Web interface: http://localhost:" + port() + "/items");
         System.out.println("📡 API endpoints: http://localhost:" + port() + "/api/");
         System.out.println("💚 Health check: http://localhost:" + port() + "/health");
-        System.out.println("🗄️  Database: PostgreSQL (auction_store)");
+        System.out.println("🗄️  Database: " + DatabaseManager.getMode().getId());
         System.out.println("===========================================");
     }
 
+    /**
+     * ?stream=true: el listado completo se escribe fila a fila en la respuesta
+     */
+    private static boolean wantsStream(Request req) {
+        return "true".equalsIgnoreCase(req.queryParams("stream"));
+    }
+
+    /**
+     * ?limit=N o ?cursor=...: paginación por cursor con campo "next"
+     */
+    private static boolean wantsPage(Request req) {
+        return req.queryParams("limit") != null || req.queryParams("cursor") != null;
+    }
+
+    /**
+     * Resumen de item del listado: solo id, name y price
+     */
+    private static void writeItemSummary(JsonWriter out, Item it) throws IOException {
+        out.beginObject()
+                .name("id").value(it.getId())
+                .name("name").value(it.getName())
+                .name("price").value(it.getPrice())
+                .endObject();
+    }
+
     static class Message {
         private final String message;
         Message(String message) { this.message = message; }
@@ -0,0 +1,387 @@
+package org.example;
+
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+import spark.Spark;
+import spark.route.HttpMethod;
+import spark.routematch.RouteMatch;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Métricas de la aplicación en formato de texto de Prometheus (GET /metrics).
+ * Por ruta (plantilla de Spark, p. ej. /api/items/:id), método y estado: histograma de
+ * latencia, bytes recibidos y enviados; por ruta, peticiones en curso; por operación
+ * de los servicios, histograma del tiempo con la conexión JDBC tomada.
+ * Registrar solo suma en LongAdder: sin locks en el camino de la petición.
+ */
+public final class Metrics {
+
+    // Límites de los buckets en segundos (1-2.5-5 por década, de 100 µs a 60 s)
+    private static final double[] BOUNDS = {
+            0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05,
+            0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60};
+    private static final long[] BOUNDS_NANOS = new long[BOUNDS.length];
+    private static final String[] BOUND_LABELS = new String[BOUNDS.length];
+
+    static {
+        for (int i = 0; i < BOUNDS.length; i++) {
+            BOUNDS_NANOS[i] = (long) (BOUNDS[i] * 1e9);
+            BOUND_LABELS[i] = BigDecimal.valueOf(BOUNDS[i]).stripTrailingZeros().toPlainString();
+        }
+    }
+
+    private static final ConcurrentHashMap<String, HttpSeries> requests = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, LongAdder> inFlight = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, Histogram> queries = new ConcurrentHashMap<>();
+
+    private static volatile RouteTemplates routes;
+
+    private Metrics() {
+    }
+
+    /**
+     * Histograma de duraciones con buckets fijos; cada bucket es un LongAdder
+     */
+    static final class Histogram {
+        final LongAdder[] buckets = new LongAdder[BOUNDS.length + 1];
+        final LongAdder sumNanos = new LongAdder();
+
+        Histogram() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void record(long nanos) {
+            int i = 0;
+            while (i < BOUNDS_NANOS.length && nanos > BOUNDS_NANOS[i]) {
+                i++;
+            }
+            buckets[i].increment();
+            sumNanos.add(nanos);
+        }
+    }
+
+    /**
+     * Serie de una combinación método/ruta/estado
+     */
+    private static final class HttpSeries {
+        final String labels;
+        final Histogram duration = new Histogram();
+        final LongAdder requestBytes = new LongAdder();
+        final LongAdder responseBytes = new LongAdder();
+
+        HttpSeries(String labels) {
+            this.labels = labels;
+        }
+    }
+
+    /**
+     * Registra el tiempo de una operación de servicio con la conexión tomada
+     */
+    public static void recordQuery(String operation, long nanos) {
+        Histogram histogram = queries.get(operation);
+        if (histogram == null) {
+            histogram = queries.computeIfAbsent(operation, k -> new Histogram());
+        }
+        histogram.record(nanos);
+    }
+
+    /**
+     * Envuelve el handler de Spark para medir cada petición completa, incluida la
+     * escritura del cuerpo y, en peticiones asíncronas (SSE), hasta que se cierran
+     */
+    public static Handler instrument(Handler handler) {
+        HandlerWrapper wrapper = new HandlerWrapper() {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request,
+                               HttpServletResponse response) throws IOException, ServletException {
+                long start = System.nanoTime();
+                String method = metricMethod(request.getMethod());
+                String route = route(method, baseRequest.getPathInfo());
+                LongAdder active = inFlight(method, route);
+                active.increment();
+
+                try {
+                    super.handle(target, baseRequest, request, response);
+                } finally {
+                    if (request.isAsyncStarted()) {
+                        request.getAsyncContext().addListener(new AsyncListener() {
+                            @Override public void onComplete(AsyncEvent event) { finish(method, route, active, baseRequest, start); }
+                            @Override public void onTimeout(AsyncEvent event) { }
+                            @Override public void onError(AsyncEvent event) { }
+                            @Override public void onStartAsync(AsyncEvent event) { }
+                        });
+                    } else {
+                        finish(method, route, active, baseRequest, start);
+                    }
+                }
+            }
+        };
+        wrapper.setHandler(handler);
+        return wrapper;
+    }
+
+    private static void finish(String method, String route, LongAdder active, Request baseRequest, long start) {
+        long elapsed = System.nanoTime() - start;
+        active.decrement();
+
+        int status = baseRequest.getResponse().getStatus();
+        String key = method + ' ' + route + ' ' + status;
+        HttpSeries series = requests.get(key);
+        if (series == null) {
+            series = requests.computeIfAbsent(key, k -> new HttpSeries(
+                    "method=\"" + method + "\",route=\"" + escape(route) + "\",status=\"" + status + "\""));
+        }
+        series.duration.record(elapsed);
+        series.requestBytes.add(Math.max(0, baseRequest.getHttpInput().getContentReceived()));
+        long bytesOut = baseRequest.getHttpChannel().getBytesWritten();
+        series.responseBytes.add(bytesOut);
+
+        RequestLog.record(method, route, baseRequest.getRequestURI(), status, elapsed, bytesOut);
+    }
+
+    /**
+     * Método tal cual si es estándar; cualquier otro cuenta como OTHER (no crea series nuevas)
+     */
+    private static String metricMethod(String method) {
+        return switch (method) {
+            case "GET", "POST", "PUT", "PATCH", "DELETE", "HEAD", "OPTIONS" -> method;
+            default -> "OTHER";
+        };
+    }
+
+    private static LongAdder inFlight(String method, String route) {
+        String key = method + ' ' + route;
+        LongAdder adder = inFlight.get(key);
+        if (adder == null) {
+            adder = inFlight.computeIfAbsent(key, k -> new LongAdder());
+        }
+        return adder;
+    }
+
+    // ============================================
+    // RUTAS: la plantilla de Spark que atiende la petición (cardinalidad acotada)
+    // ============================================
+
+    private static final class RouteTemplate {
+        final HttpMethod method;
+        final String path;
+        final String[] segments;
+        final boolean wildcardTail;
+
+        RouteTemplate(HttpMethod method, String path) {
+            this.method = method;
+            this.path = path;
+            String[] parts = split(path);
+            this.wildcardTail = parts.length > 0 && parts[parts.length - 1].equals("*");
+            this.segments = parts;
+        }
+
+        boolean matches(String requestMethod, String[] parts) {
+            if (!method.name().equalsIgnoreCase(requestMethod)) {
+                return false;
+            }
+            int fixed = wildcardTail ? segments.length - 1 : segments.length;
+            if (wildcardTail ? parts.length < fixed : parts.length != fixed) {
+                return false;
+            }
+            for (int i = 0; i < fixed; i++) {
+                String segment = segments[i];
+                if (!segment.startsWith(":") && !segment.equals("*") && !segment.equals(parts[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Plantilla de la ruta; "static" para archivos públicos y "unmatched" para el resto
+     */
+    static String route(String method, String path) {
+        String[] parts = split(path == null ? "/" : path);
+        String template = match(routes, method, parts);
+        if (template == null) {
+            // Sin coincidencia: puede que Spark haya registrado rutas después de la última lista
+            template = match(refreshRoutes(), method, parts);
+        }
+        if (template != null) {
+            return template;
+        }
+        // HEAD usa las rutas GET
+        if ("HEAD".equals(method)) {
+            return route("GET", path);
+        }
+        return path != null && path.lastIndexOf('.') > path.lastIndexOf('/') ? "static" : "unmatched";
+    }
+
+    private static String match(RouteTemplates current, String method, String[] parts) {
+        if (current == null) {
+            return null;
+        }
+        for (RouteTemplate template : current.templates) {
+            if (template.matches(method, parts)) {
+                return template.path;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Vuelve a leer las rutas de Spark si cambió su número desde la última lista.
+     * Una ruta ya reconocida no cambia de plantilla al registrar otras (Spark usa la primera
+     * que coincide), así que solo hace falta revisar en las peticiones sin coincidencia.
+     */
+    private static RouteTemplates refreshRoutes() {
+        List<RouteMatch> registered = Spark.routes();
+        RouteTemplates current = routes;
+        if (current != null && current.registered == registered.size()) {
+            return current;
+        }
+        List<RouteTemplate> templates = new ArrayList<>();
+        for (RouteMatch match : registered) {
+            HttpMethod method = match.getHttpMethod();
+            if (method == HttpMethod.before || method == HttpMethod.after || method == HttpMethod.afterafter) {
+                continue;
+            }
+            templates.add(new RouteTemplate(method, match.getMatchUri()));
+        }
+        current = new RouteTemplates(registered.size(), templates.toArray(new RouteTemplate[0]));
+        routes = current;
+        return current;
+    }
+
+    /**
+     * Plantillas de ruta y el número de rutas de Spark (con filtros) del que salieron
+     */
+    private static final class RouteTemplates {
+        final int registered;
+        final RouteTemplate[] templates;
+
+        RouteTemplates(int registered, RouteTemplate[] templates) {
+            this.registered = registered;
+            this.templates = templates;
+        }
+    }
+
+    private static String[] split(String path) {
+        List<String> parts = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i <= path.length(); i++) {
+            if (i == path.length() || path.charAt(i) == '/') {
+                if (i > start) {
+                    parts.add(path.substring(start, i));
+                }
+                start = i + 1;
+            }
+        }
+        return parts.toArray(new String[0]);
+    }
+
+    // ============================================
+    // EXPOSICIÓN EN FORMATO DE TEXTO
+    // ============================================
+
+    /**
+     * Todas las métricas en el formato de texto de Prometheus (version=0.0.4)
+     */
+    public static String render() {
+        StringBuilder out = new StringBuilder(16 * 1024);
+
+        Map<String, HttpSeries> http = new TreeMap<>(requests);
+        header(out, "http_server_requests_seconds", "histogram", "Duración de las peticiones HTTP por ruta, método y estado");
+        for (HttpSeries series : http.values()) {
+            histogram(out, "http_server_requests_seconds", series.labels, series.duration);
+        }
+        header(out, "http_server_request_bytes_total", "counter", "Bytes recibidos en el cuerpo de las peticiones");
+        for (HttpSeries series : http.values()) {
+            sample(out, "http_server_request_bytes_total", series.labels, series.requestBytes.sum());
+        }
+        header(out, "http_server_response_bytes_total", "counter", "Bytes enviados en el cuerpo de las respuestas");
+        for (HttpSeries series : http.values()) {
+            sample(out, "http_server_response_bytes_total", series.labels, series.responseBytes.sum());
+        }
+
+        header(out, "http_server_requests_in_flight", "gauge", "Peticiones en curso por ruta");
+        for (Map.Entry<String, LongAdder> entry : new TreeMap<>(inFlight).entrySet()) {
+            int space = entry.getKey().indexOf(' ');
+            String labels = "method=\"" + entry.getKey().substring(0, space)
+                    + "\",route=\"" + escape(entry.getKey().substring(space + 1)) + "\"";
+            sample(out, "http_server_requests_in_flight", labels, entry.getValue().sum());
+        }
+
+        header(out, "db_operation_seconds", "histogram", "Tiempo con la conexión JDBC tomada por operación de servicio");
+        for (Map.Entry<String, Histogram> entry : new TreeMap<>(queries).entrySet()) {
+            histogram(out, "db_operation_seconds", "operation=\"" + escape(entry.getKey()) + "\"", entry.getValue());
+        }
+
+        pool(out, DatabaseManager.poolMetrics());
+        return out.toString();
+    }
+
+    private static void pool(StringBuilder out, Map<String, Object> stats) {
+        String[][] gauges = {
+                {"active", "db_pool_connections_active", "Conexiones en uso"},
+                {"idle", "db_pool_connections_idle", "Conexiones libres"},
+                {"pending", "db_pool_connections_pending", "Hilos esperando una conexión de Hikari"},
+                {"max", "db_pool_connections_max", "Tamaño máximo del pool"},
+                {"waitingForPermit", "db_pool_permits_waiting", "Peticiones esperando permiso del limitador"}};
+        for (String[] gauge : gauges) {
+            Object value = stats.get(gauge[0]);
+            if (value instanceof Number number) {
+                header(out, gauge[1], "gauge", gauge[2]);
+                sample(out, gauge[1], null, number.longValue());
+            }
+        }
+        if (stats.get("timeouts") instanceof Number timeouts) {
+            header(out, "db_pool_timeouts_total", "counter", "Esperas de conexión que agotaron el tiempo");
+            sample(out, "db_pool_timeouts_total", null, timeouts.longValue());
+        }
+    }
+
+    private static void histogram(StringBuilder out, String name, String labels, Histogram histogram) {
+        long cumulative = 0;
+        for (int i = 0; i < histogram.buckets.length; i++) {
+            cumulative += histogram.buckets[i].sum();
+            String le = i < BOUNDS.length ? BOUND_LABELS[i] : "+Inf";
+            out.append(name).append("_bucket{").append(labels).append(",le=\"").append(le).append("\"} ")
+                    .append(cumulative).append('\n');
+        }
+        out.append(name).append("_sum{").append(labels).append("} ")
+                .append(histogram.sumNanos.sum() / (double) TimeUnit.SECONDS.toNanos(1)).append('\n');
+        out.append(name).append("_count{").append(labels).append("} ").append(cumulative).append('\n');
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, long value) {
+        out.append(name);
+        if (labels != null) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ').append(value).append('\n');
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
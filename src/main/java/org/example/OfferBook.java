@@ -0,0 +1,142 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Libro de ofertas en memoria por item.
+ * Mantiene las ofertas persistidas ordenadas por monto (descendente) para
+ * responder la oferta más alta, el conteo y el top-N sin ir a la base de datos.
+ */
+public class OfferBook {
+    // Mayor monto primero; a igual monto gana la oferta más antigua
+    private static final Comparator<Entry> ORDER = Comparator
+            .comparingDouble((Entry e) -> e.offer.getAmount()).reversed()
+            .thenComparingLong(e -> e.seq);
+
+    private final ConcurrentHashMap<String, ItemBook> books = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Registra una oferta en el libro de su item (carga inicial, sin borrados concurrentes)
+     */
+    public void add(Offer offer) {
+        if (offer == null || offer.getId() == null) {
+            return;
+        }
+        add(offer, epoch(offer.getId()));
+    }
+
+    /**
+     * Época del libro del item: cambia con cada remove. Se lee antes de insertar la oferta
+     * en la base de datos y se pasa a {@link #add(Offer, long)} tras el commit.
+     */
+    public long epoch(String itemId) {
+        ItemBook book = books.get(itemId);
+        return book != null ? book.epoch : 0;
+    }
+
+    /**
+     * Registra la oferta solo si el item no se eliminó desde que se leyó epoch; si se
+     * eliminó devuelve false, porque la oferta pudo borrarse en cascada con el item.
+     */
+    public boolean add(Offer offer, long epoch) {
+        if (offer == null || offer.getId() == null) {
+            return false;
+        }
+        boolean[] added = {false};
+        books.compute(offer.getId(), (k, book) -> {
+            long current = book != null ? book.epoch : 0;
+            if (current != epoch) {
+                return book;
+            }
+            ItemBook target = book != null ? book : new ItemBook(epoch);
+            target.entries.add(new Entry(offer, sequence.incrementAndGet()));
+            target.size.incrementAndGet();
+            added[0] = true;
+            return target;
+        });
+        return added[0];
+    }
+
+    /**
+     * Oferta más alta del item, o null si no tiene ofertas
+     */
+    public Offer highest(String itemId) {
+        ItemBook book = books.get(itemId);
+        if (book == null) {
+            return null;
+        }
+        Entry first = book.entries.isEmpty() ? null : book.entries.first();
+        return first != null ? first.offer : null;
+    }
+
+    /**
+     * Número de ofertas del item
+     */
+    public int count(String itemId) {
+        ItemBook book = books.get(itemId);
+        return book != null ? book.size.get() : 0;
+    }
+
+    /**
+     * Las {@code limit} ofertas más altas del item, ordenadas por monto descendente
+     */
+    public List<Offer> top(String itemId, int limit) {
+        ItemBook book = books.get(itemId);
+        if (book == null || limit <= 0) {
+            return Collections.emptyList();
+        }
+        List<Offer> out = new ArrayList<>(Math.min(limit, book.size.get()));
+        for (Entry e : book.entries) {
+            if (out.size() >= limit) {
+                break;
+            }
+            out.add(e.offer);
+        }
+        return out;
+    }
+
+    /**
+     * Quita todas las ofertas del item (al eliminarlo, la base de datos las borra en cascada).
+     * Deja un libro vacío con la época siguiente: el conteo empieza de cero y una oferta
+     * confirmada antes del borrado que llegue tarde ya no entra.
+     */
+    public void remove(String itemId) {
+        books.compute(itemId, (k, book) -> new ItemBook(book != null ? book.epoch + 1 : 1));
+    }
+
+    /**
+     * Vacía el libro (usado antes de recargarlo desde la base de datos)
+     */
+    public void clear() {
+        books.clear();
+    }
+
+    private static final class ItemBook {
+        final ConcurrentSkipListSet<Entry> entries = new ConcurrentSkipListSet<>(ORDER);
+        // size() de ConcurrentSkipListSet es O(n); llevamos el conteo aparte
+        final AtomicInteger size = new AtomicInteger();
+        final long epoch;
+
+        ItemBook(long epoch) {
+            this.epoch = epoch;
+        }
+    }
+
+    private static final class Entry {
+        final Offer offer;
+        final long seq;
+
+        Entry(Offer offer, long seq) {
+            this.offer = offer;
+            this.seq = seq;
+        }
+    }
+}
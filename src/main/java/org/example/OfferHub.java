@@ -0,0 +1,391 @@
+package org.example;
+
+import com.google.gson.stream.JsonWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Publicación del estado de ofertas de cada item a los clientes suscritos (SSE).
+ * Por item se guarda solo el último estado con su versión: un cliente lento
+ * no acumula eventos, al escribir recibe directamente el más reciente.
+ * Las escrituras no bloquean (WriteListener del servlet): cada cliente tiene como mucho
+ * un evento en vuelo. Si no acepta datos, su entrega se aparca hasta que el contenedor
+ * avisa de que se puede escribir; los hilos del pool nunca esperan a un cliente lento.
+ * Un cliente que no acepta nada durante STALL_MILLIS se desconecta.
+ */
+public final class OfferHub {
+    private static final Logger logger = LoggerFactory.getLogger(OfferHub.class);
+
+    private static final long HEARTBEAT_SECONDS = 15;
+    // Tiempo máximo que un cliente puede tener la escritura bloqueada
+    private static final long STALL_MILLIS = TimeUnit.SECONDS.toMillis(60);
+
+    private final Function<String, Snapshot> source;
+    private final ConcurrentHashMap<String, Topic> topics = new ConcurrentHashMap<>();
+
+    // Se crean con la primera suscripción (un OfferService sin clientes no arranca hilos)
+    private volatile ExecutorService senders;
+    private volatile ScheduledExecutorService heartbeat;
+
+    /**
+     * Estado publicado de un item
+     */
+    public static final class Snapshot {
+        private final String itemId;
+        private final int offerCount;
+        private final Double highestOffer;
+
+        public Snapshot(String itemId, int offerCount, Double highestOffer) {
+            this.itemId = itemId;
+            this.offerCount = offerCount;
+            this.highestOffer = highestOffer;
+        }
+
+        public String getItemId() { return itemId; }
+        public int getOfferCount() { return offerCount; }
+        public Double getHighestOffer() { return highestOffer; }
+    }
+
+    /**
+     * Conexión que recibe los eventos
+     */
+    public interface Client {
+        /**
+         * Escribe el evento sin bloquear; false si la conexión todavía no acepta datos
+         * (el evento no se escribió y onWritable avisará cuando se pueda)
+         */
+        boolean send(String event) throws IOException;
+
+        /**
+         * Si ahora mismo se puede escribir
+         */
+        boolean ready();
+
+        /**
+         * Acción a ejecutar cada vez que la conexión vuelve a aceptar datos
+         */
+        void onWritable(Runnable action);
+
+        void close();
+    }
+
+    private static final class Topic {
+        final String itemId;
+        final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+        Snapshot latest;
+        long version;
+
+        Topic(String itemId) {
+            this.itemId = itemId;
+        }
+    }
+
+    private final class Subscriber {
+        final Topic topic;
+        final Client client;
+        // true mientras hay una entrega en curso o encolada: nunca dos escrituras a la vez
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        volatile boolean ping;
+        // Momento en que la conexión dejó de aceptar datos (0 si acepta)
+        volatile long blockedSince;
+        long sentVersion;
+
+        Subscriber(Topic topic, Client client) {
+            this.topic = topic;
+            this.client = client;
+        }
+
+        void writable() {
+            blockedSince = 0;
+            schedule();
+        }
+
+        void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                senders.execute(this::deliver);
+            }
+        }
+
+        private void deliver() {
+            try {
+                while (true) {
+                    Snapshot snapshot;
+                    long version;
+                    synchronized (topic) {
+                        snapshot = topic.latest;
+                        version = topic.version;
+                    }
+                    if (version > sentVersion) {
+                        if (!client.send(event(snapshot, version))) {
+                            park();
+                            return;
+                        }
+                        sentVersion = version;
+                        ping = false;
+                    } else if (ping) {
+                        if (!client.send(": ping\n\n")) {
+                            park();
+                            return;
+                        }
+                        ping = false;
+                    }
+
+                    scheduled.set(false);
+                    // Si llegó otra versión mientras se escribía, se vuelve a entregar
+                    synchronized (topic) {
+                        if (topic.version <= sentVersion || !scheduled.compareAndSet(false, true)) {
+                            return;
+                        }
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.debug("Cliente SSE desconectado de {}: {}", topic.itemId, e.getMessage());
+                unsubscribe(this);
+            }
+        }
+
+        /**
+         * La conexión no acepta datos: se deja de entregar hasta que avise onWritable.
+         * Si el aviso llegó antes de soltar el flag (y no pudo programar), se reprograma aquí.
+         */
+        private void park() {
+            if (blockedSince == 0) {
+                blockedSince = System.currentTimeMillis();
+            }
+            scheduled.set(false);
+            if (client.ready()) {
+                writable();
+            }
+        }
+    }
+
+    public OfferHub(Function<String, Snapshot> source) {
+        this.source = source;
+    }
+
+    /**
+     * Registra un cliente; recibe de inmediato el estado actual del item
+     */
+    public void subscribe(String itemId, Client client) {
+        startThreads();
+        Subscriber subscriber;
+        while (true) {
+            Topic topic = topics.computeIfAbsent(itemId, Topic::new);
+            synchronized (topic) {
+                // El tema pudo quitarse entre computeIfAbsent y el lock
+                if (topics.get(itemId) != topic) {
+                    continue;
+                }
+                if (topic.latest == null) {
+                    topic.latest = source.apply(itemId);
+                    topic.version++;
+                }
+                subscriber = new Subscriber(topic, client);
+                topic.subscribers.add(subscriber);
+            }
+            break;
+        }
+        client.onWritable(subscriber::writable);
+        subscriber.schedule();
+        logger.debug("Cliente SSE suscrito a {}", itemId);
+    }
+
+    /**
+     * Recalcula el estado del item y avisa a sus suscriptores; sin suscriptores no hace nada
+     */
+    public void publish(String itemId) {
+        Topic topic = topics.get(itemId);
+        if (topic == null) {
+            return;
+        }
+        synchronized (topic) {
+            topic.latest = source.apply(itemId);
+            topic.version++;
+        }
+        for (Subscriber subscriber : topic.subscribers) {
+            subscriber.schedule();
+        }
+    }
+
+    /**
+     * Publica un estado dado (p. ej. sin ofertas, al eliminar el item) en lugar de recalcularlo
+     */
+    public void publish(Snapshot snapshot) {
+        Topic topic = topics.get(snapshot.getItemId());
+        if (topic == null) {
+            return;
+        }
+        synchronized (topic) {
+            topic.latest = snapshot;
+            topic.version++;
+        }
+        for (Subscriber subscriber : topic.subscribers) {
+            subscriber.schedule();
+        }
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        Topic topic = subscriber.topic;
+        synchronized (topic) {
+            topic.subscribers.remove(subscriber);
+            if (topic.subscribers.isEmpty()) {
+                topics.remove(topic.itemId, topic);
+            }
+        }
+        subscriber.client.close();
+    }
+
+    public int subscriberCount() {
+        int count = 0;
+        for (Topic topic : topics.values()) {
+            count += topic.subscribers.size();
+        }
+        return count;
+    }
+
+    private void startThreads() {
+        if (senders != null) {
+            return;
+        }
+        synchronized (this) {
+            if (senders != null) {
+                return;
+            }
+            heartbeat = Executors.newSingleThreadScheduledExecutor(daemon("sse-heartbeat"));
+            heartbeat.scheduleAtFixedRate(() -> ping(System.currentTimeMillis()), HEARTBEAT_SECONDS, HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+            senders = Executors.newFixedThreadPool(
+                    Math.max(2, Runtime.getRuntime().availableProcessors()), daemon("sse-sender"));
+        }
+    }
+
+    /**
+     * Comentario periódico: mantiene viva la conexión y detecta clientes que se fueron
+     * o que llevan más de STALL_MILLIS sin aceptar datos
+     */
+    void ping(long now) {
+        for (Topic topic : topics.values()) {
+            for (Subscriber subscriber : topic.subscribers) {
+                long blockedSince = subscriber.blockedSince;
+                if (blockedSince != 0 && now - blockedSince > STALL_MILLIS) {
+                    logger.info("⚠️ Cliente SSE de {} sin leer desde hace {} ms, se desconecta",
+                            topic.itemId, now - blockedSince);
+                    unsubscribe(subscriber);
+                    continue;
+                }
+                subscriber.ping = true;
+                subscriber.schedule();
+            }
+        }
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return r -> {
+            Thread thread = new Thread(r, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static String event(Snapshot snapshot, long version) throws IOException {
+        StringWriter json = new StringWriter();
+        JsonWriter out = new JsonWriter(json);
+        out.beginObject()
+                .name("itemId").value(snapshot.getItemId())
+                .name("offerCount").value(snapshot.getOfferCount())
+                .name("highestOffer").value(snapshot.getHighestOffer())
+                .name("version").value(version)
+                .endObject();
+        out.flush();
+        return "id: " + version + "\nevent: offers\ndata: " + json + "\n\n";
+    }
+
+    /**
+     * Cliente SSE sobre una petición asíncrona del servlet, con escritura no bloqueante
+     */
+    public static Client sseClient(AsyncContext context) throws IOException {
+        ServletOutputStream out = context.getResponse().getOutputStream();
+        AtomicBoolean closed = new AtomicBoolean();
+        AtomicReference<Runnable> onWritable = new AtomicReference<>();
+
+        Client client = new Client() {
+            @Override
+            public boolean send(String event) throws IOException {
+                if (closed.get()) {
+                    throw new IOException("Conexión cerrada");
+                }
+                if (!out.isReady()) {
+                    return false;
+                }
+                out.write(event.getBytes(StandardCharsets.UTF_8));
+                // Si la escritura quedó pendiente, el flush se hará al vaciarse el buffer
+                if (out.isReady()) {
+                    out.flush();
+                }
+                return true;
+            }
+
+            @Override
+            public boolean ready() {
+                return !closed.get() && out.isReady();
+            }
+
+            @Override
+            public void onWritable(Runnable action) {
+                onWritable.set(action);
+            }
+
+            @Override
+            public void close() {
+                if (closed.compareAndSet(false, true)) {
+                    try {
+                        context.complete();
+                    } catch (IllegalStateException e) {
+                        // La petición ya terminó (timeout o error del contenedor)
+                    }
+                }
+            }
+        };
+
+        context.addListener(new AsyncListener() {
+            @Override public void onComplete(AsyncEvent event) { closed.set(true); }
+            @Override public void onTimeout(AsyncEvent event) { client.close(); }
+            @Override public void onError(AsyncEvent event) { client.close(); }
+            @Override public void onStartAsync(AsyncEvent event) { }
+        });
+        // El contenedor llama a onWritePossible después de que isReady() devolvió false
+        out.setWriteListener(new WriteListener() {
+            @Override
+            public void onWritePossible() {
+                Runnable action = onWritable.get();
+                if (action != null) {
+                    action.run();
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                client.close();
+            }
+        });
+        return client;
+    }
+}
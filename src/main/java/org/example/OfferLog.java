@@ -0,0 +1,459 @@
+package org.example;
+
+import com.google.gson.Gson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Registro local de ofertas, solo de anexado (OFFER_WRITE_MODE=log).
+ * Cada oferta se escribe en un segmento mapeado en memoria como [longitud][crc32][json]
+ * y se confirma tras el fsync, que se agrupa entre los hilos que escriben a la vez.
+ * Un hilo aparte reproduce el registro en la tabla offers y avanza el checkpoint;
+ * los segmentos ya reproducidos se borran.
+ *
+ * La posición de cada registro (base del segmento + desplazamiento) es su log_id.
+ */
+public final class OfferLog implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(OfferLog.class);
+    private static final Gson gson = JsonAdapters.GSON;
+
+    private static final int HEADER_BYTES = 8;
+    private static final int REPLAY_BATCH = 500;
+    private static final String CHECKPOINT_FILE = "checkpoint";
+
+    private final Path dir;
+    private final int segmentBytes;
+
+    // Segmentos por posición base; el último es el que recibe escrituras
+    private final ConcurrentSkipListMap<Long, Path> segments = new ConcurrentSkipListMap<>();
+
+    // Estado de escritura, protegido por el monitor de la instancia
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private long base;
+    private int capacity;
+    private int writeOffset;
+
+    // Posición hasta la que el registro está en disco (fsync hecho)
+    private final AtomicLong durable = new AtomicLong();
+    private final Object forceLock = new Object();
+
+    private volatile long checkpoint;
+    private final Object replayLock = new Object();
+    private final Object replayMutex = new Object();
+    private Thread replayer;
+    private volatile boolean running;
+
+    /**
+     * Oferta leída del registro junto con su posición
+     */
+    public static final class Entry {
+        private final long logId;
+        private final long end;
+        private final Offer offer;
+
+        Entry(long logId, long end, Offer offer) {
+            this.logId = logId;
+            this.end = end;
+            this.offer = offer;
+        }
+
+        public long getLogId() { return logId; }
+        public Offer getOffer() { return offer; }
+    }
+
+    /**
+     * Destino de la reproducción; si lanza excepción, el lote se reintenta más tarde
+     */
+    @FunctionalInterface
+    public interface Sink {
+        void write(List<Entry> entries);
+    }
+
+    private OfferLog(Path dir, int segmentBytes) {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+    }
+
+    /**
+     * true si OFFER_WRITE_MODE=log
+     */
+    public static boolean enabled() {
+        return "log".equalsIgnoreCase(System.getenv("OFFER_WRITE_MODE"));
+    }
+
+    /**
+     * Directorio del registro: OFFER_LOG_DIR o ./data/offer-log
+     */
+    public static Path directoryFromEnv() {
+        return Paths.get(System.getenv().getOrDefault("OFFER_LOG_DIR", "data/offer-log"));
+    }
+
+    /**
+     * Abre (o crea) el registro con segmentos de OFFER_LOG_SEGMENT_MB (64 MB por defecto)
+     */
+    public static OfferLog open(Path dir) throws IOException {
+        String mb = System.getenv("OFFER_LOG_SEGMENT_MB");
+        int segmentBytes = (mb == null || mb.isBlank() ? 64 : Integer.parseInt(mb.trim())) * 1024 * 1024;
+        OfferLog log = new OfferLog(dir, segmentBytes);
+        log.recover();
+        return log;
+    }
+
+    /**
+     * true si el directorio tiene segmentos (hay algo que reproducir tras un reinicio)
+     */
+    public static boolean exists(Path dir) {
+        if (!Files.isDirectory(dir)) {
+            return false;
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.anyMatch(p -> p.getFileName().toString().endsWith(".log"));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Escribe una oferta y espera a que esté en disco; devuelve su log_id
+     */
+    public long append(Offer offer) throws IOException {
+        byte[] payload = gson.toJson(offer).getBytes(StandardCharsets.UTF_8);
+        int size = HEADER_BYTES + payload.length;
+        if (size > segmentBytes) {
+            throw new IOException("Registro demasiado grande para el segmento: " + size + " bytes");
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        long position;
+        long end;
+        synchronized (this) {
+            if (writeOffset + size > capacity) {
+                rotate();
+            }
+            // El cuerpo va antes que la longitud: una escritura a medias se lee como fin del registro
+            buffer.put(writeOffset + HEADER_BYTES, payload);
+            buffer.putInt(writeOffset + 4, (int) crc.getValue());
+            buffer.putInt(writeOffset, payload.length);
+            position = base + writeOffset;
+            writeOffset += size;
+            end = base + writeOffset;
+        }
+
+        sync(end);
+        synchronized (replayLock) {
+            replayLock.notifyAll();
+        }
+        return position;
+    }
+
+    /**
+     * fsync agrupado: un hilo fuerza el segmento y cubre a todos los que escribieron antes
+     */
+    private void sync(long end) throws IOException {
+        synchronized (forceLock) {
+            if (durable.get() >= end) {
+                return;
+            }
+            MappedByteBuffer target;
+            long targetBase;
+            int upTo;
+            synchronized (this) {
+                target = buffer;
+                targetBase = base;
+                upTo = writeOffset;
+            }
+            int from = (int) Math.max(0, durable.get() - targetBase);
+            target.force(from, upTo - from);
+            durable.accumulateAndGet(targetBase + upTo, Math::max);
+        }
+    }
+
+    /**
+     * Cierra el segmento actual (ya en disco) y abre el siguiente
+     */
+    private void rotate() throws IOException {
+        buffer.force();
+        durable.accumulateAndGet(base + writeOffset, Math::max);
+        channel.close();
+        openSegment(base + capacity);
+        logger.info("🔁 Nuevo segmento del registro de ofertas: {}", segments.lastEntry().getValue().getFileName());
+    }
+
+    private void openSegment(long newBase) throws IOException {
+        Path path = dir.resolve(String.format("%020d.log", newBase));
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        base = newBase;
+        capacity = segmentBytes;
+        writeOffset = 0;
+        segments.put(newBase, path);
+    }
+
+    /**
+     * Localiza los segmentos, el checkpoint y el final válido del último segmento
+     */
+    private void recover() throws IOException {
+        Files.createDirectories(dir);
+        try (Stream<Path> files = Files.list(dir)) {
+            files.filter(p -> p.getFileName().toString().endsWith(".log"))
+                    .forEach(p -> {
+                        String name = p.getFileName().toString();
+                        segments.put(Long.parseLong(name.substring(0, name.length() - 4)), p);
+                    });
+        }
+
+        if (segments.isEmpty()) {
+            // Base inicial según la hora: un registro nuevo no reutiliza log_id de uno anterior borrado
+            openSegment(System.currentTimeMillis() << 20);
+            durable.set(base);
+            checkpoint = base;
+            writeCheckpoint(base);
+            return;
+        }
+
+        long lastBase = segments.lastKey();
+        Path lastPath = segments.lastEntry().getValue();
+        channel = FileChannel.open(lastPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        // Un segmento creado con otro OFFER_LOG_SEGMENT_MB conserva su tamaño
+        capacity = (int) Math.max(channel.size(), segmentBytes);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        base = lastBase;
+        writeOffset = validEnd(buffer, capacity);
+
+        // Lo que haya tras el último registro válido es una escritura cortada: se limpia
+        for (int i = writeOffset; i < capacity; i++) {
+            if (buffer.get(i) != 0) {
+                logger.warn("⚠️ Registro de ofertas truncado en {} (escritura incompleta)", base + writeOffset);
+                for (int j = writeOffset; j < capacity; j++) {
+                    buffer.put(j, (byte) 0);
+                }
+                buffer.force();
+                break;
+            }
+        }
+        durable.set(base + writeOffset);
+
+        Path checkpointPath = dir.resolve(CHECKPOINT_FILE);
+        long saved = Files.exists(checkpointPath)
+                ? Long.parseLong(Files.readString(checkpointPath).trim())
+                : segments.firstKey();
+        checkpoint = Math.max(saved, segments.firstKey());
+
+        logger.info("📒 Registro de ofertas abierto en {} ({} segmentos, checkpoint {})",
+                dir, segments.size(), checkpoint);
+    }
+
+    /**
+     * Desplazamiento tras el último registro con longitud y CRC correctos
+     */
+    private static int validEnd(ByteBuffer segment, int capacity) {
+        int offset = 0;
+        while (offset + HEADER_BYTES <= capacity) {
+            int length = segment.getInt(offset);
+            // Restando, una longitud corrupta cercana a Integer.MAX_VALUE no desborda la suma
+            if (length <= 0 || length > capacity - offset - HEADER_BYTES) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            segment.get(offset + HEADER_BYTES, payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != segment.getInt(offset + 4)) {
+                break;
+            }
+            offset += HEADER_BYTES + length;
+        }
+        return offset;
+    }
+
+    /**
+     * Lee hasta {@code max} registros desde {@code from}, sin pasar de lo que ya está en disco
+     */
+    List<Entry> read(long from, int max) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        long position = from;
+        long limit = durable.get();
+
+        while (entries.size() < max && position < limit) {
+            Map.Entry<Long, Path> segment = segments.floorEntry(position);
+            if (segment == null) {
+                break;
+            }
+            int offset = (int) (position - segment.getKey());
+
+            try (FileChannel in = FileChannel.open(segment.getValue(), StandardOpenOption.READ)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                while (entries.size() < max && position < limit) {
+                    header.clear();
+                    int length = offset + HEADER_BYTES <= in.size() && in.read(header, offset) == HEADER_BYTES
+                            ? header.getInt(0) : 0;
+                    if (length <= 0) {
+                        break;
+                    }
+                    ByteBuffer payload = ByteBuffer.allocate(length);
+                    in.read(payload, offset + HEADER_BYTES);
+                    CRC32 crc = new CRC32();
+                    crc.update(payload.array());
+                    if ((int) crc.getValue() != header.getInt(4)) {
+                        throw new IOException("CRC inválido en la posición " + position);
+                    }
+                    Offer offer = gson.fromJson(new String(payload.array(), StandardCharsets.UTF_8), Offer.class);
+                    offset += HEADER_BYTES + length;
+                    entries.add(new Entry(position, segment.getKey() + offset, offer));
+                    position = segment.getKey() + offset;
+                }
+            }
+
+            if (entries.size() < max && position < limit) {
+                // Fin del segmento (espacio sin usar al rotar): se sigue en el siguiente
+                Long next = segments.higherKey(segment.getKey());
+                if (next == null) {
+                    break;
+                }
+                position = next;
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Reproduce todo lo pendiente en {@code sink}; devuelve cuántas ofertas se reprodujeron
+     */
+    public int replay(Sink sink) throws IOException {
+        synchronized (replayMutex) {
+            int replayed = 0;
+            while (true) {
+                List<Entry> entries = read(checkpoint, REPLAY_BATCH);
+                if (entries.isEmpty()) {
+                    return replayed;
+                }
+                sink.write(entries);
+                advanceCheckpoint(entries.get(entries.size() - 1).end);
+                replayed += entries.size();
+            }
+        }
+    }
+
+    private void advanceCheckpoint(long position) throws IOException {
+        writeCheckpoint(position);
+        checkpoint = position;
+
+        // Los segmentos cuyo siguiente empieza antes del checkpoint ya no hacen falta
+        Long current = segments.lastKey();
+        for (Long segmentBase : new ArrayList<>(segments.headMap(current).keySet())) {
+            Long next = segments.higherKey(segmentBase);
+            if (next != null && next <= position) {
+                Files.deleteIfExists(segments.remove(segmentBase));
+                logger.info("🧹 Segmento del registro de ofertas reproducido y borrado: {}", segmentBase);
+            }
+        }
+    }
+
+    private void writeCheckpoint(long position) throws IOException {
+        Path tmp = dir.resolve(CHECKPOINT_FILE + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            out.write(ByteBuffer.wrap(Long.toString(position).getBytes(StandardCharsets.US_ASCII)));
+            out.force(true);
+        }
+        Files.move(tmp, dir.resolve(CHECKPOINT_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Arranca el hilo que reproduce en segundo plano lo que se va escribiendo
+     */
+    public void startReplayer(Sink sink) {
+        running = true;
+        replayer = new Thread(() -> {
+            long backoffMs = 0;
+            while (running) {
+                try {
+                    synchronized (replayLock) {
+                        if (checkpoint >= durable.get() && running) {
+                            replayLock.wait(backoffMs > 0 ? backoffMs : 1000);
+                        } else if (backoffMs > 0) {
+                            replayLock.wait(backoffMs);
+                        }
+                    }
+                    replay(sink);
+                    backoffMs = 0;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (IOException | RuntimeException e) {
+                    // Las ofertas siguen en disco: se reintenta con espera creciente
+                    backoffMs = Math.min(Math.max(backoffMs * 2, 250), 10_000);
+                    logger.warn("Reproducción del registro de ofertas falló, reintento en {} ms: {}", backoffMs, e.getMessage());
+                }
+            }
+        }, "offer-log-replayer");
+        replayer.start();
+    }
+
+    public Map<String, Object> stats() {
+        return Map.of(
+                "segments", segments.size(),
+                "durable", durable.get(),
+                "checkpoint", checkpoint,
+                "pendingBytes", durable.get() - checkpoint);
+    }
+
+    /**
+     * Detiene el hilo de reproducción tras un último intento y cierra el segmento
+     */
+    public void close(Sink sink, long timeoutMs) {
+        running = false;
+        synchronized (replayLock) {
+            replayLock.notifyAll();
+        }
+        try {
+            if (replayer != null) {
+                replayer.join(timeoutMs);
+            }
+            if (sink != null) {
+                int replayed = replay(sink);
+                logger.info("📒 Registro de ofertas cerrado ({} ofertas reproducidas al cerrar)", replayed);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Quedan ofertas en el registro; se reproducirán al arrancar: {}", e.getMessage());
+        } finally {
+            close();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            if (channel != null && channel.isOpen()) {
+                buffer.force();
+                channel.close();
+            }
+        } catch (IOException e) {
+            logger.error("Error al cerrar el registro de ofertas", e);
+        }
+    }
+}
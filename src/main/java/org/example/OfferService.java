@@ -3,43 +3,120 @@ package org.example;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
 
+import java.math.BigDecimal;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.net.URL;
 import java.nio.charset.StandardCharsets;
 
 public class OfferService {
     private static final Logger logger = LoggerFactory.getLogger(OfferService.class);
-    private static final Gson gson = new Gson();
+    private static final Gson gson = JsonAdapters.GSON;
+
+    private static final long SEED_CHECK_INTERVAL_MS = 2000;
+    // Prefijo del id de cursor mientras la paginación recorre las ofertas semilla
+    private static final String SEED_CURSOR = "seed:";
+
+    // Ofertas persistidas en la base de datos, indexadas por item en memoria
+    private final OfferBook book = new OfferBook();
+
+    // Estado de ofertas por item publicado a los clientes SSE de /api/items/:id/stream
+    private final OfferHub hub = new OfferHub(this::snapshot);
+
+    // Ofertas semilla de ofertas.json, parseadas una sola vez
+    private final URL seedUrl;
+    private final long seedCheckIntervalMs;
+    private final ReentrantLock seedsLock = new ReentrantLock();
+    private volatile SeedOffers seeds;
+    private volatile long seedsLastModified;
+    private volatile long seedsCheckedAt;
+
+    public OfferService() {
+        this(OfferService.class.getResource("/ofertas.json"), SEED_CHECK_INTERVAL_MS);
+    }
+
+    OfferService(URL seedUrl, long seedCheckIntervalMs) {
+        this.seedUrl = seedUrl;
+        this.seedCheckIntervalMs = seedCheckIntervalMs;
+    }
 
     /**
-     * Agrega una nueva oferta (solo en PostgreSQL)
+     * Carga el libro de ofertas desde la tabla offers (se llama al arrancar)
      */
-    public void add(Offer offer) {
-        String sql = "INSERT INTO offers (name, email, item_id, amount) VALUES (?, ?, ?, ?)";
+    public void warmUp() {
+        String sql = "SELECT id, name, email, item_id, amount FROM offers";
+        int loaded = 0;
+
+        try (Connection conn = DatabaseManager.getConnection("OfferService.warmUp");
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
 
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            book.clear();
+            while (rs.next()) {
+                Offer offer = readOffer(rs);
+                book.add(offer);
+                loaded++;
+            }
 
-            pstmt.setString(1, offer.getName());
-            pstmt.setString(2, offer.getEmail());
-            pstmt.setString(3, offer.getId());
-            pstmt.setDouble(4, offer.getAmount());
+            logger.info("📚 Libro de ofertas cargado: {} ofertas", loaded);
 
-            int rows = pstmt.executeUpdate();
+        } catch (SQLException e) {
+            logger.error("Error al cargar el libro de ofertas", e);
+            throw new RuntimeException("Error al cargar el libro de ofertas: " + e.getMessage());
+        }
+    }
 
-            if (rows > 0) {
-                try (ResultSet rs = pstmt.getGeneratedKeys()) {
-                    if (rs.next()) {
-                        int generatedId = rs.getInt(1);
-                        logger.info("✅ Oferta creada con ID: {} para item: {}", generatedId, offer.getId());
+    /**
+     * Agrega una nueva oferta y actualiza item_offer_stats en la misma transacción
+     */
+    public void add(Offer offer) {
+        String sql = "INSERT INTO offers (name, email, item_id, amount) VALUES (?, ?, ?, ?)";
+
+        try (Connection conn = DatabaseManager.getConnection("OfferService.add")) {
+            long epoch = book.epoch(offer.getId());
+            conn.setAutoCommit(false);
+            int rows;
+            try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+
+                pstmt.setString(1, offer.getName());
+                pstmt.setString(2, offer.getEmail());
+                pstmt.setString(3, offer.getId());
+                pstmt.setDouble(4, offer.getAmount());
+
+                rows = pstmt.executeUpdate();
+
+                if (rows > 0) {
+                    try (ResultSet rs = pstmt.getGeneratedKeys()) {
+                        if (rs.next()) {
+                            long generatedId = rs.getLong(1);
+                            offer.setDbId(generatedId);
+                            logger.debug("✅ Oferta creada con ID: {} para item: {}", generatedId, offer.getId());
+                        }
                     }
+                    updateStats(conn, List.of(offer));
                 }
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+
+            if (rows > 0 && addToBook(conn, offer, epoch)) {
+                CatalogVersions.offersChanged(offer.getId());
+                hub.publish(offer.getId());
             }
 
         } catch (SQLException e) {
@@ -49,31 +126,321 @@ public class OfferService {
     }
 
     /**
-     * Lee ofertas desde el archivo ofertas.json
+     * Inserta un bloque de ofertas en una transacción con addBatch.
+     * Las ofertas de items inexistentes se rechazan antes del lote.
      */
-    private List<Offer> getOffersFromJson() {
-        List<Offer> offersFromJson = new ArrayList<>();
+    public List<BulkImport.Result> addAll(List<Offer> offers) {
+        return insertAll(offers, null);
+    }
 
-        try (InputStream is = getClass().getResourceAsStream("/ofertas.json")) {
-            if (is == null) {
-                logger.debug("Archivo ofertas.json no encontrado");
-                return offersFromJson;
+    /**
+     * Inserta ofertas leídas del registro local (OfferLog); las que ya se insertaron
+     * en una reproducción anterior (mismo log_id) se omiten
+     */
+    public void addLogged(List<OfferLog.Entry> entries) {
+        List<Offer> offers = new ArrayList<>(entries.size());
+        long[] logIds = new long[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            offers.add(entries.get(i).getOffer());
+            logIds[i] = entries.get(i).getLogId();
+        }
+
+        List<BulkImport.Result> results = insertAll(offers, logIds);
+        for (int i = 0; i < results.size(); i++) {
+            if (BulkImport.Result.FAILED.equals(results.get(i).getStatus())) {
+                // No se puede reintentar: el item ya no existe
+                logger.warn("⚠️ Oferta {} del registro descartada: {}", logIds[i], results.get(i).getMessage());
             }
+        }
+    }
 
-            InputStreamReader reader = new InputStreamReader(is, StandardCharsets.UTF_8);
-            Map<String, List<Offer>> data = gson.fromJson(reader,
-                    new TypeToken<Map<String, List<Offer>>>(){}.getType());
+    private List<BulkImport.Result> insertAll(List<Offer> offers, long[] logIds) {
+        String sql = "INSERT INTO offers (name, email, item_id, amount, log_id) VALUES (?, ?, ?, ?, ?)";
+        BulkImport.Result[] results = new BulkImport.Result[offers.size()];
+        List<Offer> inserted = new ArrayList<>(offers.size());
+        List<Integer> batched = new ArrayList<>(offers.size());
+
+        try (Connection conn = DatabaseManager.getConnection("OfferService.insertAll")) {
+            Map<String, Long> epochs = new HashMap<>();
+            for (Offer offer : offers) {
+                epochs.computeIfAbsent(offer.getId(), book::epoch);
+            }
+            conn.setAutoCommit(false);
+            try {
+                Set<String> items = existingItemIds(conn, offers);
+                Set<Long> replayed = logIds != null ? existingLogIds(conn, logIds) : Set.of();
+
+                try (PreparedStatement pstmt = conn.prepareStatement(sql, new String[] {"id"})) {
+                    for (int i = 0; i < offers.size(); i++) {
+                        Offer offer = offers.get(i);
+                        if (logIds != null && replayed.contains(logIds[i])) {
+                            results[i] = BulkImport.Result.conflict(offer.getId(), "Already inserted");
+                            continue;
+                        }
+                        if (!items.contains(offer.getId())) {
+                            results[i] = BulkImport.Result.failed(offer.getId(), "Item not found");
+                            continue;
+                        }
+                        pstmt.setString(1, offer.getName());
+                        pstmt.setString(2, offer.getEmail());
+                        pstmt.setString(3, offer.getId());
+                        pstmt.setDouble(4, offer.getAmount());
+                        if (logIds != null) {
+                            pstmt.setLong(5, logIds[i]);
+                        } else {
+                            pstmt.setNull(5, Types.BIGINT);
+                        }
+                        pstmt.addBatch();
+                        batched.add(i);
+                    }
+                    pstmt.executeBatch();
+
+                    try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                        for (int i : batched) {
+                            Offer offer = offers.get(i);
+                            if (keys.next()) {
+                                offer.setDbId(keys.getLong(1));
+                            }
+                            inserted.add(offer);
+                            results[i] = BulkImport.Result.created(offer.getId(), offer.getDbId());
+                        }
+                    }
+                }
+                updateStats(conn, inserted);
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
 
-            if (data != null && data.get("offers") != null) {
-                offersFromJson = data.get("offers");
-                logger.debug("{} ofertas leídas desde ofertas.json", offersFromJson.size());
+            // Solo tras el commit pasan al libro en memoria
+            Set<String> touched = new HashSet<>();
+            for (Offer offer : inserted) {
+                if (addToBook(conn, offer, epochs.get(offer.getId()))) {
+                    touched.add(offer.getId());
+                }
+            }
+            for (String itemId : touched) {
+                CatalogVersions.offersChanged(itemId);
+                hub.publish(itemId);
+            }
+            logger.debug("✅ Lote de ofertas insertado: {} de {}", inserted.size(), offers.size());
+
+        } catch (SQLException e) {
+            logger.error("❌ Error al importar lote de {} ofertas", offers.size(), e);
+            throw new RuntimeException("Error al importar ofertas: " + e.getMessage());
+        }
+
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Pasa una oferta confirmada al libro. Si el item se eliminó desde que se leyó epoch,
+     * solo entra si su fila sigue en offers (es de un item creado de nuevo con el mismo id);
+     * si se borró en cascada se descarta para no dejar un libro fantasma.
+     */
+    private boolean addToBook(Connection conn, Offer offer, long epoch) throws SQLException {
+        while (!book.add(offer, epoch)) {
+            epoch = book.epoch(offer.getId());
+            if (offer.getDbId() == null || !offerExists(conn, offer.getDbId())) {
+                logger.debug("Oferta {} descartada del libro: el item {} se eliminó", offer.getDbId(), offer.getId());
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean offerExists(Connection conn, long dbId) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT 1 FROM offers WHERE id = ?")) {
+            pstmt.setLong(1, dbId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    /**
+     * Suma las ofertas recién insertadas (número y monto más alto por item) a item_offer_stats,
+     * dentro de la transacción del INSERT. La fila del item queda bloqueada hasta el commit,
+     * así que las pujas concurrentes se suman una tras otra; los items se recorren en orden
+     * para que dos lotes bloqueen sus filas en el mismo orden.
+     */
+    private static void updateStats(Connection conn, List<Offer> offers) throws SQLException {
+        Map<String, double[]> byItem = new TreeMap<>();
+        for (Offer offer : offers) {
+            double[] delta = byItem.computeIfAbsent(offer.getId(), k -> new double[] {0, offer.getAmount()});
+            delta[0]++;
+            delta[1] = Math.max(delta[1], offer.getAmount());
+        }
+        if (byItem.isEmpty()) {
+            return;
+        }
+
+        if (!DatabaseManager.getMode().isEmbedded()) {
+            String upsert = """
+                INSERT INTO item_offer_stats (item_id, offer_count, max_amount, last_offer_at)
+                VALUES (?, ?, ?, CURRENT_TIMESTAMP)
+                ON CONFLICT (item_id) DO UPDATE SET
+                    offer_count = item_offer_stats.offer_count + EXCLUDED.offer_count,
+                    max_amount = GREATEST(item_offer_stats.max_amount, EXCLUDED.max_amount),
+                    last_offer_at = EXCLUDED.last_offer_at
+            """;
+            try (PreparedStatement pstmt = conn.prepareStatement(upsert)) {
+                for (Map.Entry<String, double[]> e : byItem.entrySet()) {
+                    pstmt.setString(1, e.getKey());
+                    pstmt.setLong(2, (long) e.getValue()[0]);
+                    pstmt.setDouble(3, e.getValue()[1]);
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+            }
+            return;
+        }
+
+        // H2 no admite ON CONFLICT DO UPDATE: UPDATE (bloquea la fila) y, si no existe, INSERT;
+        // si otra transacción la insertó entre medias, el INSERT no hace nada y se repite el UPDATE
+        String update = "UPDATE item_offer_stats SET offer_count = offer_count + ?, "
+                + "max_amount = CASE WHEN max_amount IS NULL OR max_amount < ? THEN ? ELSE max_amount END, "
+                + "last_offer_at = CURRENT_TIMESTAMP WHERE item_id = ?";
+        String insert = "INSERT INTO item_offer_stats (item_id, offer_count, max_amount, last_offer_at) "
+                + "VALUES (?, ?, ?, CURRENT_TIMESTAMP)" + DatabaseManager.getMode().onConflictDoNothing("item_id");
+        try (PreparedStatement upd = conn.prepareStatement(update);
+             PreparedStatement ins = conn.prepareStatement(insert)) {
+            for (Map.Entry<String, double[]> e : byItem.entrySet()) {
+                long count = (long) e.getValue()[0];
+                double max = e.getValue()[1];
+                upd.setLong(1, count);
+                upd.setDouble(2, max);
+                upd.setDouble(3, max);
+                upd.setString(4, e.getKey());
+                if (upd.executeUpdate() > 0) {
+                    continue;
+                }
+                ins.setString(1, e.getKey());
+                ins.setLong(2, count);
+                ins.setDouble(3, max);
+                if (ins.executeUpdate() == 0) {
+                    upd.executeUpdate();
+                }
+            }
+        }
+    }
+
+    /**
+     * log_id del bloque que ya están en la tabla offers
+     */
+    private static Set<Long> existingLogIds(Connection conn, long[] logIds) throws SQLException {
+        Set<Long> existing = new HashSet<>();
+        Object[] ids = Arrays.stream(logIds).boxed().toArray();
+
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT log_id FROM offers WHERE log_id = ANY(?)")) {
+            pstmt.setArray(1, conn.createArrayOf("bigint", ids));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    existing.add(rs.getLong(1));
+                }
+            }
+        }
+        return existing;
+    }
+
+    /**
+     * Items referenciados por el bloque que existen, en una sola consulta
+     */
+    private static Set<String> existingItemIds(Connection conn, List<Offer> offers) throws SQLException {
+        Set<String> existing = new HashSet<>();
+        Object[] ids = offers.stream().map(Offer::getId).distinct().toArray();
+
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT id FROM items WHERE id = ANY(?)")) {
+            pstmt.setArray(1, conn.createArrayOf("varchar", ids));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    existing.add(rs.getString(1));
+                }
+            }
+        }
+        return existing;
+    }
+
+    /**
+     * Revisa si ofertas.json cambió; se llama antes de leer las versiones de ofertas
+     * para que una recarga del archivo cambie los ETag
+     */
+    public void refreshSeeds() {
+        seedOffers();
+    }
+
+    /**
+     * Devuelve la instantánea de ofertas.json, recargándola solo si el archivo cambió.
+     * Una recarga cambia la versión de ofertas de los items con semillas antes o después.
+     */
+    private SeedOffers seedOffers() {
+        SeedOffers current = seeds;
+        if (current != null && System.currentTimeMillis() - seedsCheckedAt < seedCheckIntervalMs) {
+            return current;
+        }
+        // Solo un hilo revisa el archivo; el resto sigue con la instantánea vigente
+        if (current != null && !seedsLock.tryLock()) {
+            return current;
+        }
+        if (current == null) {
+            seedsLock.lock();
+        }
+        try {
+            long modified = seedFileLastModified();
+            if (seeds == null || (modified != 0 && modified != seedsLastModified)) {
+                SeedOffers previous = seeds;
+                seeds = loadSeedOffers();
+                seedsLastModified = modified;
+                if (previous != null) {
+                    Set<String> affected = new HashSet<>(previous.itemIds());
+                    affected.addAll(seeds.itemIds());
+                    for (String itemId : affected) {
+                        CatalogVersions.offersChanged(itemId);
+                    }
+                }
             }
+            seedsCheckedAt = System.currentTimeMillis();
+            return seeds;
+        } finally {
+            seedsLock.unlock();
+        }
+    }
 
+    /**
+     * Fecha de modificación de ofertas.json; 0 si viene dentro del JAR y no puede cambiar
+     */
+    private long seedFileLastModified() {
+        if (seedUrl == null || !"file".equals(seedUrl.getProtocol())) {
+            return 0;
+        }
+        try {
+            return new File(seedUrl.toURI()).lastModified();
         } catch (Exception e) {
-            logger.warn("Error al leer ofertas.json: {}", e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Lee ofertas desde el archivo ofertas.json
+     */
+    private SeedOffers loadSeedOffers() {
+        if (seedUrl == null) {
+            logger.debug("Archivo ofertas.json no encontrado");
+            return SeedOffers.empty();
         }
 
-        return offersFromJson;
+        try (InputStream is = seedUrl.openStream();
+             InputStreamReader reader = new InputStreamReader(is, StandardCharsets.UTF_8)) {
+
+            SeedOffers loaded = SeedOffers.parse(reader, gson);
+            logger.info("{} ofertas leídas desde ofertas.json", loaded.size());
+            return loaded;
+
+        } catch (Exception e) {
+            logger.warn("Error al leer ofertas.json: {}", e.getMessage());
+            return SeedOffers.empty();
+        }
     }
 
     /**
@@ -81,18 +448,14 @@ public class OfferService {
      */
     private List<Offer> getOffersFromDatabase() {
         List<Offer> offers = new ArrayList<>();
-        String sql = "SELECT name, email, item_id, amount, created_at FROM offers ORDER BY created_at DESC";
+        String sql = "SELECT id, name, email, item_id, amount, created_at FROM offers ORDER BY created_at DESC, id DESC";
 
-        try (Connection conn = DatabaseManager.getConnection();
+        try (Connection conn = DatabaseManager.getConnection("OfferService.getOffersFromDatabase");
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
             while (rs.next()) {
-                Offer offer = new Offer();
-                offer.setName(rs.getString("name"));
-                offer.setEmail(rs.getString("email"));
-                offer.setId(rs.getString("item_id"));
-                offer.setAmount(rs.getDouble("amount"));
+                Offer offer = readOffer(rs);
                 offers.add(offer);
             }
 
@@ -112,58 +475,162 @@ public class OfferService {
         List<Offer> allOffers = new ArrayList<>();
 
         // 1. Primero agregar ofertas del JSON
-        List<Offer> jsonOffers = getOffersFromJson();
+        List<Offer> jsonOffers = seedOffers().all();
         allOffers.addAll(jsonOffers);
 
         // 2. Luego agregar ofertas de PostgreSQL
         List<Offer> dbOffers = getOffersFromDatabase();
         allOffers.addAll(dbOffers);
 
-        logger.info("📋 Total ofertas: {} (JSON: {}, DB: {})",
+        logger.debug("📋 Total ofertas: {} (JSON: {}, DB: {})",
                 allOffers.size(), jsonOffers.size(), dbOffers.size());
 
         return allOffers;
     }
 
     /**
-     * Obtiene ofertas por item (JSON + PostgreSQL)
+     * Obtiene una página de ofertas: primero las semilla del JSON y después las de la base de datos
+     * ordenadas por (created_at, id) descendente. Las semilla cuentan dentro del límite; mientras
+     * quedan semilla el cursor es "seed:n" (n = semilla ya devueltas).
      */
-    public List<Offer> getByItemId(String itemId) {
-        List<Offer> allOffers = new ArrayList<>();
-
-        // 1. Filtrar ofertas del JSON por item
-        List<Offer> jsonOffers = getOffersFromJson();
-        for (Offer offer : jsonOffers) {
-            if (offer.getId().equals(itemId)) {
-                allOffers.add(offer);
+    public Page<Offer> getPage(String cursor, int limit) {
+        Page.Cursor after = Page.decodeCursor(cursor);
+        boolean inSeeds = after == null || after.getId().startsWith(SEED_CURSOR);
+
+        List<Offer> offers = new ArrayList<>(limit);
+        int seedEnd = 0;
+        if (inSeeds) {
+            List<Offer> seeds = seedOffers().all();
+            int seedFrom = after != null ? parseSeedIndex(after.getId(), seeds.size()) : 0;
+            seedEnd = Math.min(seeds.size(), seedFrom + limit);
+            offers.addAll(seeds.subList(seedFrom, seedEnd));
+            if (seedEnd < seeds.size()) {
+                return new Page<>(offers, seedCursor(seedEnd));
             }
+            // Semilla agotadas: las filas de la base de datos empiezan desde el principio
+            after = null;
         }
+        int remaining = limit - offers.size();
 
-        // 2. Obtener ofertas de PostgreSQL para ese item
-        String sql = "SELECT name, email, item_id, amount FROM offers WHERE item_id = ? ORDER BY amount DESC";
+        long afterId = after != null ? parseOfferId(after.getId()) : 0;
+        String sql = "SELECT id, name, email, item_id, amount, created_at FROM offers "
+                + (after != null ? "WHERE (created_at, id) < (?, ?) " : "")
+                + "ORDER BY created_at DESC, id DESC LIMIT ?";
+        String next = null;
 
-        try (Connection conn = DatabaseManager.getConnection();
+        try (Connection conn = DatabaseManager.getConnection("OfferService.getPage");
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
-            pstmt.setString(1, itemId);
+            int i = 1;
+            if (after != null) {
+                pstmt.setTimestamp(i++, after.getCreatedAt());
+                pstmt.setLong(i++, afterId);
+            }
+            // Se pide una fila extra para saber si hay página siguiente
+            pstmt.setInt(i, remaining + 1);
 
             try (ResultSet rs = pstmt.executeQuery()) {
+                Timestamp lastCreatedAt = null;
+                int rows = 0;
                 while (rs.next()) {
-                    Offer offer = new Offer();
-                    offer.setName(rs.getString("name"));
-                    offer.setEmail(rs.getString("email"));
-                    offer.setId(rs.getString("item_id"));
-                    offer.setAmount(rs.getDouble("amount"));
-                    allOffers.add(offer);
+                    if (rows == remaining) {
+                        // Página llena solo con semilla: la siguiente empieza en la primera fila
+                        Offer last = offers.get(offers.size() - 1);
+                        next = rows == 0
+                                ? seedCursor(seedEnd)
+                                : Page.encodeCursor(lastCreatedAt, String.valueOf(last.getDbId()));
+                        break;
+                    }
+                    offers.add(readOffer(rs));
+                    lastCreatedAt = rs.getTimestamp("created_at");
+                    rows++;
                 }
             }
 
         } catch (SQLException e) {
-            logger.error("Error al obtener ofertas por item", e);
+            logger.error("Error al obtener página de ofertas", e);
+            throw new RuntimeException("Error al obtener ofertas: " + e.getMessage());
+        }
+
+        return new Page<>(offers, next);
+    }
+
+    private static String seedCursor(int returned) {
+        return Page.encodeCursor(new Timestamp(0), SEED_CURSOR + returned);
+    }
+
+    private static int parseSeedIndex(String id, int seedCount) {
+        try {
+            int index = Integer.parseInt(id.substring(SEED_CURSOR.length()));
+            if (index < 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            // Si el JSON cambió entre páginas, no se sale de la lista
+            return Math.min(index, seedCount);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    /**
+     * Recorre todas las ofertas (JSON + PostgreSQL) sin cargarlas en memoria
+     */
+    public void streamAll(RowHandler<Offer> handler) throws IOException {
+        for (Offer offer : seedOffers().all()) {
+            handler.handle(offer);
         }
 
-        // 3. Ordenar todas por monto (descendente)
-        allOffers.sort((o1, o2) -> Double.compare(o2.getAmount(), o1.getAmount()));
+        String sql = "SELECT id, name, email, item_id, amount FROM offers ORDER BY created_at DESC, id DESC";
+
+        try (Connection conn = DatabaseManager.getConnection("OfferService.streamAll")) {
+            // PostgreSQL solo usa cursores en el servidor con autocommit desactivado
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setFetchSize(DatabaseManager.STREAM_FETCH_SIZE);
+
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        handler.handle(readOffer(rs));
+                    }
+                }
+            }
+            conn.commit();
+
+        } catch (SQLException e) {
+            logger.error("Error al recorrer ofertas", e);
+            throw new RuntimeException("Error al obtener ofertas: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Obtiene ofertas por item (JSON + PostgreSQL), ordenadas por monto descendente
+     */
+    public List<Offer> getByItemId(String itemId) {
+        return getTopOffers(itemId, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Obtiene las {@code limit} ofertas más altas de un item (JSON + libro en memoria)
+     */
+    public List<Offer> getTopOffers(String itemId, int limit) {
+        // 1. Ofertas del JSON para el item, ya ordenadas en la instantánea
+        List<Offer> jsonOffers = seedOffers().forItem(itemId);
+
+        // 2. Ofertas persistidas, ya ordenadas en el libro
+        List<Offer> dbOffers = book.top(itemId, limit);
+
+        // 3. Mezclar ambas listas ordenadas hasta completar el límite
+        List<Offer> allOffers = new ArrayList<>(Math.min(limit, jsonOffers.size() + dbOffers.size()));
+        int i = 0, j = 0;
+        while (allOffers.size() < limit && (i < jsonOffers.size() || j < dbOffers.size())) {
+            if (j >= dbOffers.size()
+                    || (i < jsonOffers.size() && jsonOffers.get(i).getAmount() >= dbOffers.get(j).getAmount())) {
+                allOffers.add(jsonOffers.get(i++));
+            } else {
+                allOffers.add(dbOffers.get(j++));
+            }
+        }
 
         logger.debug("{} ofertas para item {}", allOffers.size(), itemId);
 
@@ -174,23 +641,122 @@ public class OfferService {
      * Obtiene la oferta más alta para un item (JSON + PostgreSQL)
      */
     public Offer getHighestOffer(String itemId) {
-        List<Offer> allOffers = getByItemId(itemId);
+        Offer highest = seedOffers().highest(itemId);
 
-        if (allOffers.isEmpty()) {
-            return null;
+        // A igual monto se conserva la oferta del JSON, como en el orden de getByItemId
+        Offer dbHighest = book.highest(itemId);
+        if (dbHighest != null && (highest == null || dbHighest.getAmount() > highest.getAmount())) {
+            highest = dbHighest;
         }
 
-        // Ya están ordenadas por monto descendente
-        Offer highest = allOffers.get(0);
-        logger.debug("Oferta más alta para {}: ${}", itemId, highest.getAmount());
+        if (highest != null) {
+            logger.debug("Oferta más alta para {}: ${}", itemId, highest.getAmount());
+        }
 
         return highest;
     }
 
+    /**
+     * Resumen de ofertas de un item: una lectura por clave primaria de item_offer_stats
+     * más las ofertas semilla del JSON
+     */
+    public OfferStats getStats(String itemId) {
+        String sql = "SELECT offer_count, max_amount, last_offer_at FROM item_offer_stats WHERE item_id = ?";
+        long count = 0;
+        Double highest = null;
+        Timestamp lastOfferAt = null;
+
+        try (Connection conn = DatabaseManager.getConnection("OfferService.getStats");
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, itemId);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    count = rs.getLong("offer_count");
+                    BigDecimal max = rs.getBigDecimal("max_amount");
+                    highest = max != null ? max.doubleValue() : null;
+                    lastOfferAt = rs.getTimestamp("last_offer_at");
+                }
+            }
+
+        } catch (SQLException e) {
+            logger.error("Error al obtener resumen de ofertas: {}", itemId, e);
+            throw new RuntimeException("Error al obtener resumen de ofertas: " + e.getMessage());
+        }
+
+        return withSeedOffers(itemId, new OfferStats(count, highest, lastOfferAt));
+    }
+
+    /**
+     * Suma las ofertas semilla del JSON (en memoria) al resumen leído de item_offer_stats
+     */
+    public OfferStats withSeedOffers(String itemId, OfferStats stats) {
+        SeedOffers seed = seedOffers();
+        int seedCount = seed.count(itemId);
+        if (seedCount == 0) {
+            return stats;
+        }
+        Double highest = stats.getHighestOffer();
+        Offer seedHighest = seed.highest(itemId);
+        if (highest == null || seedHighest.getAmount() > highest) {
+            highest = seedHighest.getAmount();
+        }
+        return new OfferStats(stats.getOfferCount() + seedCount, highest, stats.getLastOfferAt());
+    }
+
     /**
      * Cuenta ofertas por item (JSON + PostgreSQL)
      */
     public int countByItemId(String itemId) {
-        return getByItemId(itemId).size();
+        return seedOffers().count(itemId) + book.count(itemId);
+    }
+
+    /**
+     * El item se eliminó (sus ofertas y su fila de item_offer_stats se borran en cascada):
+     * se quitan sus ofertas del libro, cambian las versiones de ofertas (del item y global,
+     * para que los ETag de /api/offers dejen de valer) y los clientes SSE reciben un estado sin ofertas
+     */
+    public void itemDeleted(String itemId) {
+        book.remove(itemId);
+        CatalogVersions.offersChanged(itemId);
+        hub.publish(new OfferHub.Snapshot(itemId, 0, null));
+    }
+
+    /**
+     * Suscribe un cliente a los cambios de ofertas del item
+     */
+    public void subscribe(String itemId, OfferHub.Client client) {
+        hub.subscribe(itemId, client);
+    }
+
+    public int subscriberCount() {
+        return hub.subscriberCount();
+    }
+
+    /**
+     * Número de ofertas y oferta más alta del item (semilla + libro en memoria)
+     */
+    private OfferHub.Snapshot snapshot(String itemId) {
+        Offer highest = getHighestOffer(itemId);
+        return new OfferHub.Snapshot(itemId, countByItemId(itemId), highest != null ? highest.getAmount() : null);
+    }
+
+    private static long parseOfferId(String id) {
+        try {
+            return Long.parseLong(id);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    private static Offer readOffer(ResultSet rs) throws SQLException {
+        Offer offer = new Offer();
+        offer.setDbId(rs.getLong("id"));
+        offer.setName(rs.getString("name"));
+        offer.setEmail(rs.getString("email"));
+        offer.setId(rs.getString("item_id"));
+        offer.setAmount(rs.getDouble("amount"));
+        return offer;
     }
-}
\ No newline at end of file
+}
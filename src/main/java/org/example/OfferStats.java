@@ -0,0 +1,23 @@
+package org.example;
+
+import java.sql.Timestamp;
+
+/**
+ * Resumen de ofertas de un item (tabla item_offer_stats más las ofertas semilla):
+ * número de ofertas, monto más alto y momento de la última oferta persistida.
+ */
+public class OfferStats {
+    private final long offerCount;
+    private final Double highestOffer;
+    private final Timestamp lastOfferAt;
+
+    public OfferStats(long offerCount, Double highestOffer, Timestamp lastOfferAt) {
+        this.offerCount = offerCount;
+        this.highestOffer = highestOffer;
+        this.lastOfferAt = lastOfferAt;
+    }
+
+    public long getOfferCount() { return offerCount; }
+    public Double getHighestOffer() { return highestOffer; }
+    public Timestamp getLastOfferAt() { return lastOfferAt; }
+}
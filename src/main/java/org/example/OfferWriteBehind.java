@@ -0,0 +1,203 @@
+package org.example;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Escritura diferida de ofertas (OFFER_WRITE_MODE=async).
+ * Las ofertas aceptadas entran en una cola acotada y un único hilo escritor las
+ * inserta por lotes, una transacción por lote (group commit). Si la cola está
+ * llena, submit devuelve null y la ruta responde 429.
+ */
+public final class OfferWriteBehind {
+    private static final Logger logger = LoggerFactory.getLogger(OfferWriteBehind.class);
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final OfferService service;
+    private final BlockingQueue<Offer> queue;
+    private final int maxBatch;
+    private final long lingerMs;
+    private final Thread writer;
+    private volatile boolean running = true;
+    // submit comprueba running y encola bajo el lock de lectura; shutdown cierra con el de
+    // escritura, así el escritor no ve running = false con una oferta aceptada aún fuera de la cola
+    private final ReentrantReadWriteLock closing = new ReentrantReadWriteLock();
+
+    // Prefijo por arranque para que los ids provisionales no se repitan entre reinicios
+    private final String idPrefix = "p" + Long.toString(System.currentTimeMillis(), 36) + "-";
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+
+    public OfferWriteBehind(OfferService service, int capacity, int maxBatch, long lingerMs) {
+        this.service = service;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.maxBatch = maxBatch;
+        this.lingerMs = lingerMs;
+        this.writer = new Thread(this::run, "offer-writer");
+    }
+
+    /**
+     * Crea y arranca el escritor con OFFER_QUEUE_CAPACITY (10000), OFFER_BATCH_MAX (500)
+     * y OFFER_LINGER_MS (5)
+     */
+    public static OfferWriteBehind fromEnv(OfferService service) {
+        OfferWriteBehind writeBehind = new OfferWriteBehind(service,
+                intEnv("OFFER_QUEUE_CAPACITY", 10_000),
+                intEnv("OFFER_BATCH_MAX", 500),
+                intEnv("OFFER_LINGER_MS", 5));
+        writeBehind.start();
+        return writeBehind;
+    }
+
+    /**
+     * true si OFFER_WRITE_MODE=async
+     */
+    public static boolean enabled() {
+        return "async".equalsIgnoreCase(System.getenv("OFFER_WRITE_MODE"));
+    }
+
+    public void start() {
+        writer.start();
+        logger.info("✍️ Escritura diferida de ofertas activa (cola {}, lotes de hasta {})",
+                queue.remainingCapacity(), maxBatch);
+    }
+
+    /**
+     * Encola una oferta; devuelve su id provisional o null si la cola está llena (o cerrándose)
+     */
+    public String submit(Offer offer) {
+        closing.readLock().lock();
+        try {
+            if (!running || !queue.offer(offer)) {
+                rejected.increment();
+                return null;
+            }
+        } finally {
+            closing.readLock().unlock();
+        }
+        accepted.increment();
+        return idPrefix + sequence.incrementAndGet();
+    }
+
+    private void run() {
+        List<Offer> batch = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            try {
+                Offer first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatch - 1);
+
+                // Espera breve para juntar más ofertas en el mismo commit
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMs);
+                while (batch.size() < maxBatch && running) {
+                    long left = deadline - System.nanoTime();
+                    if (left <= 0) {
+                        break;
+                    }
+                    Offer next = queue.poll(left, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    queue.drainTo(batch, maxBatch - batch.size());
+                }
+
+                flush(batch);
+            } catch (InterruptedException e) {
+                // Solo se interrumpe si el drenado excede el tiempo de apagado
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<Offer> batch) throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                List<BulkImport.Result> results = service.addAll(batch);
+                for (int i = 0; i < results.size(); i++) {
+                    BulkImport.Result result = results.get(i);
+                    if (BulkImport.Result.CREATED.equals(result.getStatus())) {
+                        written.increment();
+                    } else {
+                        failed.increment();
+                        logger.warn("Oferta descartada para item {}: {}", batch.get(i).getId(), result.getMessage());
+                    }
+                }
+                batches.increment();
+                return;
+            } catch (RuntimeException e) {
+                if (attempt == MAX_ATTEMPTS) {
+                    failed.add(batch.size());
+                    logger.error("❌ Se perdieron {} ofertas tras {} intentos: {}", batch.size(), attempt, e.getMessage());
+                    return;
+                }
+                logger.warn("Lote de {} ofertas falló (intento {}), reintentando: {}", batch.size(), attempt, e.getMessage());
+                Thread.sleep(200L * attempt);
+            }
+        }
+    }
+
+    /**
+     * Deja de aceptar ofertas y espera a que se escriba lo que queda en la cola
+     */
+    public void shutdown(long timeoutMs) {
+        closing.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            closing.writeLock().unlock();
+        }
+        logger.info("⏳ Escribiendo {} ofertas pendientes antes de cerrar...", queue.size());
+        try {
+            writer.join(timeoutMs);
+            if (writer.isAlive()) {
+                writer.interrupt();
+                logger.error("❌ Tiempo de apagado agotado; quedaron {} ofertas sin escribir", queue.size());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queued", queue.size());
+        stats.put("accepted", accepted.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("written", written.sum());
+        stats.put("failed", failed.sum());
+        stats.put("batches", batches.sum());
+        return stats;
+    }
+
+    private static int intEnv(String name, int defaultValue) {
+        String value = System.getenv(name);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        return Integer.parseInt(value.trim());
+    }
+}
@@ -0,0 +1,82 @@
+package org.example;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Página de resultados con paginación por cursor (keyset) sobre (created_at, id).
+ * {@code next} es null cuando no hay más resultados.
+ */
+public class Page<T> {
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 500;
+
+    private final List<T> items;
+    private final String next;
+
+    public Page(List<T> items, String next) {
+        this.items = items;
+        this.next = next;
+    }
+
+    public List<T> getItems() { return items; }
+    public String getNext() { return next; }
+
+    /**
+     * Normaliza el parámetro limit de la petición al rango [1, MAX_LIMIT]
+     */
+    public static int parseLimit(String value) {
+        if (value == null || value.isBlank()) {
+            return DEFAULT_LIMIT;
+        }
+        try {
+            return Math.max(1, Math.min(MAX_LIMIT, Integer.parseInt(value.trim())));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid limit: " + value);
+        }
+    }
+
+    /**
+     * Codifica la posición de la última fila devuelta como un cursor opaco
+     */
+    public static String encodeCursor(Timestamp createdAt, String id) {
+        String raw = createdAt.getTime() + ":" + createdAt.getNanos() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodifica un cursor; null si no se envió
+     */
+    public static Cursor decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":", 3);
+            Timestamp ts = new Timestamp(Long.parseLong(parts[0]));
+            ts.setNanos(Integer.parseInt(parts[1]));
+            return new Cursor(ts, parts[2]);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    /**
+     * Posición decodificada: created_at e id de la última fila de la página anterior
+     */
+    public static final class Cursor {
+        private final Timestamp createdAt;
+        private final String id;
+
+        Cursor(Timestamp createdAt, String id) {
+            this.createdAt = createdAt;
+            this.id = id;
+        }
+
+        public Timestamp getCreatedAt() { return createdAt; }
+        public String getId() { return id; }
+    }
+}
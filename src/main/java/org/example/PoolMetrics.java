@@ -0,0 +1,101 @@
+package org.example;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Métricas del pool de Hikari: conexiones activas, libres y en espera, más el tiempo
+ * para obtener una conexión (acquire) y el tiempo que se usa (usage).
+ * Si acquire sube, el pool se queda corto; si sube usage, las consultas son lentas.
+ */
+public final class PoolMetrics implements MetricsTrackerFactory {
+    private static final Logger logger = LoggerFactory.getLogger(PoolMetrics.class);
+
+    private volatile PoolStats pool;
+
+    private final Timing acquire = new Timing();
+    private final Timing usage = new Timing();
+    private final Timing creation = new Timing();
+    private final LongAdder timeouts = new LongAdder();
+
+    /**
+     * Suma, cuenta y máximo de una duración en microsegundos, sin bloqueos
+     */
+    private static final class Timing {
+        final LongAdder count = new LongAdder();
+        final LongAdder totalMicros = new LongAdder();
+        final LongAccumulator maxMicros = new LongAccumulator(Math::max, 0);
+
+        void record(long micros) {
+            count.increment();
+            totalMicros.add(micros);
+            maxMicros.accumulate(micros);
+        }
+
+        Map<String, Object> toMap() {
+            long n = count.sum();
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("count", n);
+            map.put("avgMs", n == 0 ? 0.0 : totalMicros.sum() / 1000.0 / n);
+            map.put("maxMs", maxMicros.get() / 1000.0);
+            return map;
+        }
+    }
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        this.pool = poolStats;
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                acquire.record(TimeUnit.NANOSECONDS.toMicros(elapsedAcquiredNanos));
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                usage.record(elapsedBorrowedMillis * 1000);
+            }
+
+            @Override
+            public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+                creation.record(connectionCreatedMillis * 1000);
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeouts.increment();
+                logger.warn("⏱️ Tiempo agotado esperando una conexión del pool {}", poolName);
+            }
+        };
+    }
+
+    /**
+     * Estado actual del pool y tiempos acumulados desde el arranque
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        PoolStats current = pool;
+        if (current != null) {
+            stats.put("active", current.getActiveConnections());
+            stats.put("idle", current.getIdleConnections());
+            stats.put("total", current.getTotalConnections());
+            stats.put("pending", current.getPendingThreads());
+            stats.put("max", current.getMaxConnections());
+            stats.put("minIdle", current.getMinConnections());
+        }
+        stats.put("acquire", acquire.toMap());
+        stats.put("usage", usage.toMap());
+        stats.put("creation", creation.toMap());
+        stats.put("timeouts", timeouts.sum());
+        return stats;
+    }
+}
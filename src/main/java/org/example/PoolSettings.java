@@ -0,0 +1,89 @@
+package org.example;
+
+import com.zaxxer.hikari.HikariConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Parámetros del pool de conexiones. Cada uno se toma de una propiedad del sistema
+ * (p. ej. -Ddb.pool.size=20), luego de la variable de entorno (DB_POOL_SIZE=20) y
+ * si no hay ninguna, del valor por defecto del motor (StorageMode).
+ */
+public final class PoolSettings {
+    private static final Logger logger = LoggerFactory.getLogger(PoolSettings.class);
+
+    private PoolSettings() {
+    }
+
+    /**
+     * Aplica tamaño, tiempos y detección de fugas a la configuración de Hikari
+     */
+    public static void apply(HikariConfig config, StorageMode mode) {
+        int maxSize = poolSize(mode);
+        config.setMaximumPoolSize(maxSize);
+        config.setMinimumIdle(Math.min(maxSize, intSetting("DB_POOL_MIN_IDLE",
+                mode.isEmbedded() ? maxSize : mode.defaultMinimumIdle())));
+        config.setConnectionTimeout(longSetting("DB_CONNECTION_TIMEOUT_MS", mode.defaultConnectionTimeoutMs()));
+        config.setIdleTimeout(longSetting("DB_IDLE_TIMEOUT_MS", mode.defaultIdleTimeoutMs()));
+        config.setMaxLifetime(longSetting("DB_MAX_LIFETIME_MS", mode.defaultMaxLifetimeMs()));
+        config.setValidationTimeout(longSetting("DB_VALIDATION_TIMEOUT_MS", config.getValidationTimeout()));
+        config.setLeakDetectionThreshold(longSetting("DB_LEAK_DETECTION_MS", 0));
+        long keepalive = longSetting("DB_KEEPALIVE_MS", 0);
+        if (keepalive > 0) {
+            config.setKeepaliveTime(keepalive);
+        }
+
+        logger.info("🏊 Pool: máximo {}, mínimo en reposo {}, espera {} ms",
+                config.getMaximumPoolSize(), config.getMinimumIdle(), config.getConnectionTimeout());
+    }
+
+    /**
+     * DB_POOL_SIZE explícito; si no, calculado con DB_TARGET_CONCURRENCY; si no, el del motor
+     */
+    static int poolSize(StorageMode mode) {
+        String size = setting("DB_POOL_SIZE");
+        if (size != null && !size.equalsIgnoreCase("auto")) {
+            return Math.max(1, Integer.parseInt(size));
+        }
+
+        String target = setting("DB_TARGET_CONCURRENCY");
+        if (size == null && target == null) {
+            return mode.defaultMaximumPoolSize();
+        }
+
+        int cores = intSetting("DB_CORES", Runtime.getRuntime().availableProcessors());
+        int concurrency = target != null ? Integer.parseInt(target) : Integer.MAX_VALUE;
+        int recommended = recommendedPoolSize(cores, concurrency);
+        logger.info("📐 Tamaño del pool calculado: {} ({} núcleos, concurrencia objetivo {})",
+                recommended, cores, target != null ? target : "sin límite");
+        return recommended;
+    }
+
+    /**
+     * Tamaño sugerido: núcleos * 2 + 1 (fórmula de HikariCP para discos SSD), sin pasar
+     * de la concurrencia que se espera atender; más conexiones que eso solo esperan CPU o locks
+     */
+    public static int recommendedPoolSize(int cores, int targetConcurrency) {
+        int byCores = cores * 2 + 1;
+        return Math.max(2, Math.min(byCores, targetConcurrency));
+    }
+
+    /**
+     * Propiedad del sistema (DB_POOL_SIZE -> db.pool.size) o variable de entorno; null si no hay
+     */
+    static String setting(String envName) {
+        String property = System.getProperty(envName.toLowerCase().replace('_', '.'));
+        String value = property != null ? property : System.getenv(envName);
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    private static int intSetting(String envName, int defaultValue) {
+        String value = setting(envName);
+        return value != null ? Integer.parseInt(value) : defaultValue;
+    }
+
+    private static long longSetting(String envName, long defaultValue) {
+        String value = setting(envName);
+        return value != null ? Long.parseLong(value) : defaultValue;
+    }
+}
@@ -0,0 +1,72 @@
+package org.example;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Precio tipado (monto + moneda ISO) y su conversión desde/hacia el texto que muestra la API,
+ * p. ej. "$621.34 USD".
+ */
+public final class Price {
+    public static final String DEFAULT_CURRENCY = "USD";
+
+    // Símbolo opcional, monto con separadores de miles opcionales y código de moneda opcional
+    private static final Pattern FORMAT = Pattern.compile(
+            "^\\s*[$€£]?\\s*([0-9][0-9,]*(?:\\.[0-9]+)?)\\s*([A-Za-z]{3})?\\s*$");
+
+    private final BigDecimal amount;
+    private final String currency;
+
+    public Price(BigDecimal amount, String currency) {
+        this.amount = amount.setScale(2, RoundingMode.HALF_UP);
+        this.currency = currency.toUpperCase(Locale.ROOT);
+    }
+
+    public BigDecimal getAmount() { return amount; }
+    public String getCurrency() { return currency; }
+
+    /**
+     * Interpreta un precio de texto; null si el texto es null o vacío
+     *
+     * @throws IllegalArgumentException si el texto no es un precio válido
+     */
+    public static Price parse(String text) {
+        if (text == null || text.isBlank()) {
+            return null;
+        }
+        Matcher m = FORMAT.matcher(text);
+        if (!m.matches()) {
+            throw new IllegalArgumentException("Invalid price: " + text);
+        }
+        BigDecimal amount = new BigDecimal(m.group(1).replace(",", ""));
+        String currency = m.group(2) != null ? m.group(2) : DEFAULT_CURRENCY;
+        return new Price(amount, currency);
+    }
+
+    /**
+     * Texto para mostrar a partir de las columnas; null si no hay monto
+     */
+    public static String format(BigDecimal amount, String currency) {
+        if (amount == null) {
+            return null;
+        }
+        return new Price(amount, currency != null ? currency : DEFAULT_CURRENCY).toString();
+    }
+
+    @Override
+    public String toString() {
+        return symbol(currency) + amount.toPlainString() + " " + currency;
+    }
+
+    private static String symbol(String currency) {
+        return switch (currency) {
+            case "USD", "MXN", "CAD" -> "$";
+            case "EUR" -> "€";
+            case "GBP" -> "£";
+            default -> "";
+        };
+    }
+}
@@ -0,0 +1,68 @@
+package org.example;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Access log en el logger "access": una línea clave=valor por petición.
+ * Los GET/HEAD 2xx rápidos, que son la gran mayoría, se muestrean con
+ * ACCESS_LOG_SAMPLE (0.01 = 1 de cada 100); errores, escrituras y peticiones
+ * más lentas que ACCESS_LOG_SLOW_MS (500) se registran siempre.
+ * La línea solo se arma si se va a registrar.
+ */
+public final class RequestLog {
+    private static final Logger access = LoggerFactory.getLogger("access");
+
+    private static final double SAMPLE_RATE = sampleRateFromEnv();
+    private static final long SLOW_NANOS = TimeUnit.MILLISECONDS.toNanos(slowMsFromEnv());
+
+    private RequestLog() {
+    }
+
+    /**
+     * Registra una petición terminada (la llama Metrics al cerrar la petición)
+     */
+    static void record(String method, String route, String uri, int status, long nanos, long bytesOut) {
+        if (!access.isInfoEnabled()) {
+            return;
+        }
+        boolean sampled = status >= 200 && status < 300
+                && (method.equals("GET") || method.equals("HEAD"))
+                && nanos < SLOW_NANOS;
+        if (sampled && (SAMPLE_RATE <= 0 || ThreadLocalRandom.current().nextDouble() >= SAMPLE_RATE)) {
+            return;
+        }
+
+        StringBuilder line = new StringBuilder(128);
+        line.append("method=").append(method)
+                .append(" route=").append(route)
+                .append(" path=").append(uri)
+                .append(" status=").append(status)
+                .append(" ms=").append(nanos / 1_000_000).append('.').append(nanos / 100_000 % 10)
+                .append(" bytes=").append(bytesOut);
+        if (sampled) {
+            // Peso para reconstruir totales a partir de las líneas muestreadas
+            line.append(" sample=").append(SAMPLE_RATE);
+        }
+        access.info(line.toString());
+    }
+
+    private static double sampleRateFromEnv() {
+        String value = System.getenv("ACCESS_LOG_SAMPLE");
+        if (value == null || value.isBlank()) {
+            return 0.01;
+        }
+        return Math.min(1.0, Double.parseDouble(value.trim()));
+    }
+
+    private static long slowMsFromEnv() {
+        String value = System.getenv("ACCESS_LOG_SLOW_MS");
+        if (value == null || value.isBlank()) {
+            return 500;
+        }
+        return Long.parseLong(value.trim());
+    }
+}
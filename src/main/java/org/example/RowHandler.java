@@ -0,0 +1,11 @@
+package org.example;
+
+import java.io.IOException;
+
+/**
+ * Recibe filas una a una mientras se recorre un ResultSet (usado para streaming)
+ */
+@FunctionalInterface
+public interface RowHandler<T> {
+    void handle(T row) throws IOException;
+}
@@ -0,0 +1,242 @@
+package org.example;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Migraciones de esquema versionadas.
+ * La versión aplicada se guarda en schema_version; al arrancar solo se ejecutan
+ * las migraciones pendientes, cada una en su propia transacción.
+ */
+public final class SchemaMigrations {
+    private static final Logger logger = LoggerFactory.getLogger(SchemaMigrations.class);
+
+    private final List<Migration> migrations = new ArrayList<>();
+
+    @FunctionalInterface
+    interface Step {
+        void apply(Connection conn, StorageMode mode) throws SQLException;
+    }
+
+    private static final class Migration {
+        final int version;
+        final String description;
+        final Step step;
+
+        Migration(int version, String description, Step step) {
+            this.version = version;
+            this.description = description;
+            this.step = step;
+        }
+    }
+
+    public SchemaMigrations() {
+        add(1, "Tablas base users, items y offers", SchemaMigrations::createBaseTables);
+        add(2, "Índices para ofertas por item y listados por fecha", SchemaMigrations::createIndexes);
+        add(3, "Precio de items como monto numérico + moneda", SchemaMigrations::typedItemPrice);
+        add(4, "Posición en el registro local de ofertas (offers.log_id)", SchemaMigrations::offerLogId);
+        add(5, "Resumen de ofertas por item (item_offer_stats)", SchemaMigrations::itemOfferStats);
+    }
+
+    private void add(int version, String description, Step step) {
+        migrations.add(new Migration(version, description, step));
+    }
+
+    /**
+     * Aplica las migraciones pendientes
+     */
+    public void migrate(Connection conn, StorageMode mode) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS schema_version (
+                    version INTEGER PRIMARY KEY,
+                    description VARCHAR(200) NOT NULL,
+                    applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                )
+            """);
+        }
+
+        int current = currentVersion(conn);
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+            for (Migration migration : migrations) {
+                if (migration.version <= current) {
+                    continue;
+                }
+                logger.info("🛠️  Aplicando migración V{}: {}", migration.version, migration.description);
+                try {
+                    migration.step.apply(conn, mode);
+                    try (PreparedStatement pstmt = conn.prepareStatement(
+                            "INSERT INTO schema_version (version, description) VALUES (?, ?)")) {
+                        pstmt.setInt(1, migration.version);
+                        pstmt.setString(2, migration.description);
+                        pstmt.executeUpdate();
+                    }
+                    conn.commit();
+                } catch (SQLException | RuntimeException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            }
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+        logger.info("Esquema en la versión V{}", latestVersion());
+    }
+
+    public int latestVersion() {
+        return migrations.isEmpty() ? 0 : migrations.get(migrations.size() - 1).version;
+    }
+
+    private static int currentVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    /**
+     * V1: las tablas que antes creaba DatabaseManager.createTables
+     */
+    private static void createBaseTables(Connection conn, StorageMode mode) throws SQLException {
+        // En H2, TEXT se guarda como CLOB (fuera de la fila); VARCHAR sin límite se guarda en línea
+        String textType = mode.isEmbedded() ? "VARCHAR" : "TEXT";
+        String serialType = mode.isEmbedded() ? "INTEGER GENERATED BY DEFAULT AS IDENTITY" : "SERIAL";
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS users (
+                    id VARCHAR(50) PRIMARY KEY,
+                    name VARCHAR(100) NOT NULL,
+                    email VARCHAR(100) NOT NULL UNIQUE,
+                    password VARCHAR(255),
+                    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                )
+            """);
+
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS items (
+                    id VARCHAR(50) PRIMARY KEY,
+                    name VARCHAR(200) NOT NULL,
+                    description %s,
+                    price VARCHAR(50),
+                    image_url VARCHAR(500),
+                    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                )
+            """.formatted(textType));
+
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS offers (
+                    id %s PRIMARY KEY,
+                    name VARCHAR(100) NOT NULL,
+                    email VARCHAR(100) NOT NULL,
+                    item_id VARCHAR(50) NOT NULL,
+                    amount DECIMAL(10, 2) NOT NULL,
+                    status VARCHAR(20) DEFAULT 'pending',
+                    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                    FOREIGN KEY (item_id) REFERENCES items(id) ON DELETE CASCADE
+                )
+            """.formatted(serialType));
+        }
+    }
+
+    /**
+     * V2: índices para las consultas por item y los listados paginados por (created_at, id)
+     */
+    private static void createIndexes(Connection conn, StorageMode mode) throws SQLException {
+        // En PostgreSQL el índice por item cubre también name/email (index-only scan); H2 no soporta INCLUDE
+        String offersByItem = mode.isEmbedded()
+                ? "CREATE INDEX IF NOT EXISTS idx_offers_item_amount ON offers (item_id, amount DESC)"
+                : "CREATE INDEX IF NOT EXISTS idx_offers_item_amount ON offers (item_id, amount DESC) INCLUDE (name, email)";
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(offersByItem);
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_offers_created ON offers (created_at DESC, id DESC)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_items_created ON items (created_at DESC, id DESC)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_users_created ON users (created_at DESC, id DESC)");
+        }
+    }
+
+    /**
+     * V3: items.price (VARCHAR, p. ej. '$621.34 USD') pasa a price_amount NUMERIC + price_currency.
+     * Si algún precio existente no se puede interpretar, la migración falla en lugar de perderlo.
+     */
+    private static void typedItemPrice(Connection conn, StorageMode mode) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("ALTER TABLE items ADD COLUMN IF NOT EXISTS price_amount NUMERIC(12, 2)");
+            stmt.execute("ALTER TABLE items ADD COLUMN IF NOT EXISTS price_currency VARCHAR(3)");
+        }
+
+        try (Statement select = conn.createStatement();
+             ResultSet rs = select.executeQuery("SELECT id, price FROM items WHERE price IS NOT NULL");
+             PreparedStatement update = conn.prepareStatement(
+                     "UPDATE items SET price_amount = ?, price_currency = ? WHERE id = ?")) {
+
+            while (rs.next()) {
+                String id = rs.getString("id");
+                Price price;
+                try {
+                    price = Price.parse(rs.getString("price"));
+                } catch (IllegalArgumentException e) {
+                    throw new SQLException("Precio no convertible en item " + id + ": " + rs.getString("price"));
+                }
+                if (price == null) {
+                    continue;
+                }
+                update.setBigDecimal(1, price.getAmount());
+                update.setString(2, price.getCurrency());
+                update.setString(3, id);
+                update.addBatch();
+            }
+            update.executeBatch();
+        }
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("ALTER TABLE items DROP COLUMN IF EXISTS price");
+        }
+    }
+
+    /**
+     * V4: offers.log_id guarda la posición de la oferta en OfferLog, para que reproducir
+     * el registro varias veces no duplique ofertas (NULL en las ofertas que no pasan por él)
+     */
+    private static void offerLogId(Connection conn, StorageMode mode) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("ALTER TABLE offers ADD COLUMN IF NOT EXISTS log_id BIGINT");
+            stmt.execute("CREATE UNIQUE INDEX IF NOT EXISTS idx_offers_log_id ON offers (log_id)");
+        }
+    }
+
+    /**
+     * V5: item_offer_stats guarda por item el número de ofertas, el monto más alto y la
+     * última oferta; OfferService la actualiza en la misma transacción que cada INSERT en offers.
+     * Se rellena con las ofertas ya existentes.
+     */
+    private static void itemOfferStats(Connection conn, StorageMode mode) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS item_offer_stats (
+                    item_id VARCHAR(50) PRIMARY KEY,
+                    offer_count BIGINT NOT NULL,
+                    max_amount DECIMAL(10, 2),
+                    last_offer_at TIMESTAMP,
+                    FOREIGN KEY (item_id) REFERENCES items(id) ON DELETE CASCADE
+                )
+            """);
+            stmt.execute("""
+                INSERT INTO item_offer_stats (item_id, offer_count, max_amount, last_offer_at)
+                SELECT item_id, COUNT(*), MAX(amount), MAX(created_at) FROM offers GROUP BY item_id
+            """);
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package org.example;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Índice invertido en memoria para búsqueda por palabras y por prefijo (search-as-you-type).
+ * Los textos se dividen en términos (minúsculas, sin acentos, separados por cualquier
+ * carácter no alfanumérico). El diccionario de términos está ordenado, así que un prefijo
+ * es un rango; un índice de trigramas sobre el diccionario encuentra además los términos
+ * que contienen la palabra buscada en medio (lo que antes hacía LIKE '%q%').
+ * Todas las palabras de la consulta deben aparecer; la puntuación suma, por palabra,
+ * el peso del campo por el tipo de coincidencia (exacta > prefijo > contenida).
+ * Los servicios lo cargan al arrancar y lo actualizan tras cada escritura.
+ */
+public class SearchIndex<T> {
+    private static final int EXACT = 3;
+    private static final int PREFIX = 2;
+    private static final int INFIX = 1;
+    // Palabras de la consulta que se tienen en cuenta
+    private static final int MAX_QUERY_WORDS = 8;
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    // Mayor puntuación primero; a igual puntuación, por id
+    private static final Comparator<Map.Entry<String, Integer>> BY_SCORE = Map.Entry.<String, Integer>comparingByValue()
+            .reversed().thenComparing(Map.Entry.comparingByKey());
+
+    private final List<Field<T>> fields;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Doc<T>> docs = new HashMap<>();
+    // término -> (id del documento -> peso del campo más importante en que aparece)
+    private final TreeMap<String, Map<String, Integer>> postings = new TreeMap<>();
+    // trigrama -> términos del diccionario que lo contienen
+    private final Map<String, Set<String>> trigrams = new HashMap<>();
+
+    private final LongAdder queries = new LongAdder();
+
+    /**
+     * Campo indexado y su peso en la puntuación
+     */
+    public static final class Field<T> {
+        final Function<T, String> text;
+        final int weight;
+
+        Field(Function<T, String> text, int weight) {
+            this.text = text;
+            this.weight = weight;
+        }
+    }
+
+    public static <T> Field<T> field(Function<T, String> text, int weight) {
+        return new Field<>(text, weight);
+    }
+
+    /**
+     * Documento encontrado y su puntuación
+     */
+    public static final class Hit<T> {
+        private final T doc;
+        private final int score;
+
+        Hit(T doc, int score) {
+            this.doc = doc;
+            this.score = score;
+        }
+
+        public T getDoc() { return doc; }
+        public int getScore() { return score; }
+    }
+
+    /**
+     * Los mejores resultados (hasta el límite) y el total de documentos que coinciden
+     */
+    public static final class Hits<T> {
+        private final List<Hit<T>> hits;
+        private final int total;
+
+        Hits(List<Hit<T>> hits, int total) {
+            this.hits = hits;
+            this.total = total;
+        }
+
+        public List<Hit<T>> getHits() { return hits; }
+        public int getTotal() { return total; }
+    }
+
+    private static final class Doc<T> {
+        final T value;
+        final Map<String, Integer> terms;
+
+        Doc(T value, Map<String, Integer> terms) {
+            this.value = value;
+            this.terms = terms;
+        }
+    }
+
+    public SearchIndex(List<Field<T>> fields) {
+        this.fields = List.copyOf(fields);
+    }
+
+    /**
+     * Indexa (o reemplaza) un documento. El índice guarda la instancia: no debe modificarse después.
+     */
+    public void put(String id, T value) {
+        Map<String, Integer> terms = new HashMap<>();
+        for (Field<T> field : fields) {
+            for (String term : tokenize(field.text.apply(value))) {
+                terms.merge(term, field.weight, Math::max);
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+            docs.put(id, new Doc<>(value, terms));
+            for (Map.Entry<String, Integer> e : terms.entrySet()) {
+                Map<String, Integer> posting = postings.get(e.getKey());
+                if (posting == null) {
+                    posting = new HashMap<>();
+                    postings.put(e.getKey(), posting);
+                    for (String gram : trigramsOf(e.getKey())) {
+                        trigrams.computeIfAbsent(gram, k -> new HashSet<>()).add(e.getKey());
+                    }
+                }
+                posting.put(id, e.getValue());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Vacía el índice (usado antes de recargarlo desde la base de datos)
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            docs.clear();
+            postings.clear();
+            trigrams.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Documentos con todas las palabras de la consulta, de mayor a menor puntuación
+     * (a igual puntuación, por id); como mucho {@code limit}
+     */
+    public Hits<T> search(String query, int limit) {
+        queries.increment();
+        List<String> words = tokenize(query);
+        if (words.size() > MAX_QUERY_WORDS) {
+            words = words.subList(0, MAX_QUERY_WORDS);
+        }
+        if (words.isEmpty()) {
+            return new Hits<>(Collections.emptyList(), 0);
+        }
+
+        lock.readLock().lock();
+        try {
+            Map<String, Integer> scores = null;
+            for (String word : words) {
+                Map<String, Integer> matches = match(word);
+                if (scores == null) {
+                    scores = matches;
+                } else {
+                    scores.keySet().retainAll(matches.keySet());
+                    scores.replaceAll((id, score) -> score + matches.get(id));
+                }
+                if (scores.isEmpty()) {
+                    break;
+                }
+            }
+
+            List<Map.Entry<String, Integer>> ranked = new ArrayList<>(scores.entrySet());
+            ranked.sort(BY_SCORE);
+            List<Hit<T>> top = new ArrayList<>(Math.min(limit, ranked.size()));
+            for (int i = 0; i < ranked.size() && top.size() < limit; i++) {
+                Map.Entry<String, Integer> e = ranked.get(i);
+                top.add(new Hit<>(docs.get(e.getKey()).value, e.getValue()));
+            }
+            return new Hits<>(top, ranked.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Documentos, términos y consultas del índice
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            stats.put("documents", docs.size());
+            stats.put("terms", postings.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+        stats.put("queries", queries.sum());
+        return stats;
+    }
+
+    /**
+     * Mejor puntuación de cada documento para una palabra de la consulta
+     */
+    private Map<String, Integer> match(String word) {
+        Map<String, Integer> best = new HashMap<>();
+
+        // Exacta y prefijo: el rango de términos que empiezan por la palabra
+        for (Map.Entry<String, Map<String, Integer>> e
+                : postings.subMap(word, true, word + Character.MAX_VALUE, false).entrySet()) {
+            collect(best, e.getValue(), e.getKey().length() == word.length() ? EXACT : PREFIX);
+        }
+
+        // Contenida: términos con todos los trigramas de la palabra que la contienen de verdad
+        if (word.length() >= 3) {
+            for (String term : candidates(word)) {
+                if (!term.startsWith(word) && term.contains(word)) {
+                    collect(best, postings.get(term), INFIX);
+                }
+            }
+        }
+        return best;
+    }
+
+    private static void collect(Map<String, Integer> best, Map<String, Integer> posting, int kind) {
+        for (Map.Entry<String, Integer> e : posting.entrySet()) {
+            best.merge(e.getKey(), e.getValue() * kind, Math::max);
+        }
+    }
+
+    /**
+     * Intersección de los términos de cada trigrama, empezando por el conjunto más pequeño
+     */
+    private Set<String> candidates(String word) {
+        List<Set<String>> sets = new ArrayList<>();
+        for (String gram : trigramsOf(word)) {
+            Set<String> terms = trigrams.get(gram);
+            if (terms == null) {
+                return Collections.emptySet();
+            }
+            sets.add(terms);
+        }
+        sets.sort(Comparator.comparingInt(Set::size));
+        Set<String> result = new HashSet<>(sets.get(0));
+        for (int i = 1; i < sets.size() && !result.isEmpty(); i++) {
+            result.retainAll(sets.get(i));
+        }
+        return result;
+    }
+
+    private void removeLocked(String id) {
+        Doc<T> old = docs.remove(id);
+        if (old == null) {
+            return;
+        }
+        for (String term : old.terms.keySet()) {
+            Map<String, Integer> posting = postings.get(term);
+            if (posting == null) {
+                continue;
+            }
+            posting.remove(id);
+            if (posting.isEmpty()) {
+                postings.remove(term);
+                for (String gram : trigramsOf(term)) {
+                    Set<String> terms = trigrams.get(gram);
+                    if (terms != null && terms.remove(term) && terms.isEmpty()) {
+                        trigrams.remove(gram);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Términos de un texto, sin repetir: minúsculas, sin acentos, solo letras y dígitos
+     */
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return Collections.emptyList();
+        }
+        String plain = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        Set<String> terms = new LinkedHashSet<>();
+        for (String term : SEPARATORS.split(plain.toLowerCase(Locale.ROOT))) {
+            if (!term.isEmpty()) {
+                terms.add(term);
+            }
+        }
+        return new ArrayList<>(terms);
+    }
+
+    private static Set<String> trigramsOf(String term) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + 3 <= term.length(); i++) {
+            grams.add(term.substring(i, i + 3));
+        }
+        return grams;
+    }
+}
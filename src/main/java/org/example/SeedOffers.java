@@ -0,0 +1,104 @@
+package org.example;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Instantánea inmutable de las ofertas semilla de ofertas.json, indexada por item.
+ * Cada lista por item está ordenada por monto descendente.
+ */
+public final class SeedOffers {
+    private static final SeedOffers EMPTY = new SeedOffers(Collections.emptyList());
+    private static final Comparator<Offer> BY_AMOUNT_DESC =
+            (o1, o2) -> Double.compare(o2.getAmount(), o1.getAmount());
+
+    private final List<Offer> all;
+    private final Map<String, List<Offer>> byItem;
+
+    private SeedOffers(List<Offer> offers) {
+        this.all = Collections.unmodifiableList(new ArrayList<>(offers));
+
+        Map<String, List<Offer>> index = new HashMap<>();
+        for (Offer offer : offers) {
+            if (offer != null && offer.getId() != null) {
+                index.computeIfAbsent(offer.getId(), k -> new ArrayList<>()).add(offer);
+            }
+        }
+        for (Map.Entry<String, List<Offer>> e : index.entrySet()) {
+            e.getValue().sort(BY_AMOUNT_DESC);
+            e.setValue(Collections.unmodifiableList(e.getValue()));
+        }
+        this.byItem = Collections.unmodifiableMap(index);
+    }
+
+    public static SeedOffers empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Parsea el JSON de ofertas; acepta tanto un arreglo como {"offers": [...]}
+     */
+    public static SeedOffers parse(Reader reader, Gson gson) {
+        JsonElement root = JsonParser.parseReader(reader);
+        if (root != null && root.isJsonObject()) {
+            root = root.getAsJsonObject().get("offers");
+        }
+        if (root == null || !root.isJsonArray()) {
+            return EMPTY;
+        }
+
+        List<Offer> offers = new ArrayList<>();
+        for (JsonElement element : root.getAsJsonArray()) {
+            Offer offer = gson.fromJson(element, Offer.class);
+            if (offer != null) {
+                offers.add(offer);
+            }
+        }
+        return new SeedOffers(offers);
+    }
+
+    /**
+     * Todas las ofertas semilla, en el orden del archivo
+     */
+    public List<Offer> all() {
+        return all;
+    }
+
+    /**
+     * Ofertas semilla del item, ordenadas por monto descendente
+     */
+    public List<Offer> forItem(String itemId) {
+        List<Offer> offers = byItem.get(itemId);
+        return offers != null ? offers : Collections.emptyList();
+    }
+
+    public Offer highest(String itemId) {
+        List<Offer> offers = forItem(itemId);
+        return offers.isEmpty() ? null : offers.get(0);
+    }
+
+    public int count(String itemId) {
+        return forItem(itemId).size();
+    }
+
+    public int size() {
+        return all.size();
+    }
+
+    /**
+     * Ids de los items que tienen alguna oferta semilla
+     */
+    public Set<String> itemIds() {
+        return byItem.keySet();
+    }
+}
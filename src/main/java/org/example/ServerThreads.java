@@ -0,0 +1,167 @@
+package org.example;
+
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ThreadPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import spark.embeddedserver.EmbeddedServers;
+import spark.embeddedserver.jetty.EmbeddedJettyFactory;
+import spark.embeddedserver.jetty.JettyServerFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+/**
+ * Servidor Jetty embebido de Spark: hilos que atienden las peticiones
+ * (SERVER_THREADS=platform|virtual) y un envoltorio del handler (métricas).
+ * En modo virtual (Java 21+) Jetty recibe un ThreadPool que ejecuta cada tarea de conexión
+ * en un hilo virtual nuevo: una petición bloqueada en JDBC solo aparca su hilo virtual y
+ * no agota un pool fijo. Acceptors y selectores siguen en hilos de plataforma.
+ * En Java 17 se avisa y se sigue con el pool de Jetty.
+ */
+public final class ServerThreads {
+    private static final Logger logger = LoggerFactory.getLogger(ServerThreads.class);
+
+    private ServerThreads() {
+    }
+
+    /**
+     * Configura el servidor de Spark según SERVER_THREADS; debe llamarse antes de definir rutas.
+     * decorator envuelve el handler de Spark. Devuelve true si las peticiones corren en hilos virtuales.
+     */
+    public static boolean configure(UnaryOperator<Handler> decorator) {
+        String mode = System.getenv().getOrDefault("SERVER_THREADS", "platform").trim();
+        ExecutorService executor = null;
+        if (mode.equalsIgnoreCase("virtual")) {
+            executor = virtualThreadExecutor();
+            if (executor == null) {
+                logger.warn("⚠️ SERVER_THREADS=virtual requiere Java 21+ (actual: {}); se usa el pool de Jetty",
+                        Runtime.version());
+            }
+        }
+
+        EmbeddedJettyFactory factory = new EmbeddedJettyFactory(new DecoratingServerFactory(decorator));
+        if (executor != null) {
+            factory.withThreadPool(new VirtualThreadPool(executor));
+            logger.info("🧵 Peticiones HTTP en hilos virtuales");
+        }
+        EmbeddedServers.add(EmbeddedServers.Identifiers.JETTY, factory);
+        return executor != null;
+    }
+
+    /**
+     * Crea el Server como Spark (QueuedThreadPool por defecto) pero envolviendo el handler que recibe
+     */
+    private static final class DecoratingServerFactory implements JettyServerFactory {
+        private final UnaryOperator<Handler> decorator;
+
+        DecoratingServerFactory(UnaryOperator<Handler> decorator) {
+            this.decorator = decorator;
+        }
+
+        @Override
+        public Server create(int maxThreads, int minThreads, int threadTimeoutMillis) {
+            if (maxThreads <= 0) {
+                return create(null);
+            }
+            return create(new QueuedThreadPool(maxThreads, minThreads > 0 ? minThreads : 8,
+                    threadTimeoutMillis > 0 ? threadTimeoutMillis : 60_000));
+        }
+
+        @Override
+        public Server create(ThreadPool threadPool) {
+            return new Server(threadPool) {
+                @Override
+                public void setHandler(Handler handler) {
+                    super.setHandler(handler != null ? decorator.apply(handler) : null);
+                }
+            };
+        }
+    }
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor() si el JDK lo tiene (se compila para Java 17)
+     */
+    private static ExecutorService virtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * ThreadPool de Jetty que ejecuta en hilos virtuales las tareas de las conexiones
+     * (leer, atender la petición, escribir). Los acceptors, los selectores y las estrategias
+     * que producen tareas siguen en el QueuedThreadPool de plataforma: bloquean en accept/select
+     * durante toda la vida del servidor y no deben ocupar los hilos portadores de los virtuales.
+     */
+    static final class VirtualThreadPool extends QueuedThreadPool {
+        // Clases de Jetty 9.4 cuyas tareas viven tanto como el conector
+        private static final String[] PLATFORM_JOBS = {
+                "org.eclipse.jetty.server.AbstractConnector$Acceptor",
+                "org.eclipse.jetty.io.ManagedSelector",
+                "org.eclipse.jetty.util.thread.strategy.",
+                "org.eclipse.jetty.util.thread.ReservedThreadExecutor"};
+
+        private final ExecutorService executor;
+        private final AtomicInteger running = new AtomicInteger();
+
+        VirtualThreadPool(ExecutorService executor) {
+            this.executor = executor;
+            setName("jetty-io");
+            setMinThreads(2);
+            // Sin hilos de plataforma reservados: las tareas de las conexiones van a hilos virtuales
+            setReservedThreads(0);
+        }
+
+        @Override
+        public void execute(Runnable job) {
+            if (isPlatformJob(job)) {
+                super.execute(job);
+                return;
+            }
+            running.incrementAndGet();
+            try {
+                executor.execute(() -> {
+                    try {
+                        job.run();
+                    } finally {
+                        running.decrementAndGet();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                running.decrementAndGet();
+                throw e;
+            }
+        }
+
+        static boolean isPlatformJob(Runnable job) {
+            String name = job.getClass().getName();
+            for (String prefix : PLATFORM_JOBS) {
+                if (name.startsWith(prefix)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Tareas de conexión en curso en hilos virtuales
+         */
+        int getVirtualThreads() {
+            return running.get();
+        }
+
+        @Override
+        protected void doStop() throws Exception {
+            super.doStop();
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package org.example;
+
+import org.eclipse.jetty.server.handler.gzip.GzipHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import spark.Request;
+import spark.Response;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Recursos estáticos (CSS, JS) cargados en memoria al arrancar, con la huella del
+ * contenido en la URL (/assets/styles.3f2a9c1b7d.css) y su versión gzip ya calculada.
+ * Como la URL cambia con el contenido, se sirven con caché de un año (immutable).
+ * Las plantillas usan las URLs del mapa urls() (p. ej. {{assets.styles_css}}).
+ */
+public final class StaticAssets {
+    private static final Logger logger = LoggerFactory.getLogger(StaticAssets.class);
+
+    public static final String PREFIX = "/assets/";
+
+    private final Map<String, Asset> byPath;
+    private final Map<String, String> urls;
+
+    /**
+     * Contenido de un recurso; gzip es null si comprimido no es más pequeño.
+     * Cada codificación lleva su ETag ("--gzip" como en las respuestas dinámicas).
+     */
+    private static final class Asset {
+        final String contentType;
+        final byte[] raw;
+        final byte[] gzip;
+        final String etag;
+        final String gzipEtag;
+
+        Asset(String contentType, byte[] raw, byte[] gzip, String hash) {
+            this.contentType = contentType;
+            this.raw = raw;
+            this.gzip = gzip;
+            this.etag = "\"" + hash + "\"";
+            this.gzipEtag = "\"" + hash + "--gzip\"";
+        }
+    }
+
+    private StaticAssets(Map<String, Asset> byPath, Map<String, String> urls) {
+        this.byPath = byPath;
+        this.urls = urls;
+    }
+
+    /**
+     * Lee y comprime los archivos del directorio del classpath (p. ej. "public")
+     */
+    public static StaticAssets load(String directory) {
+        Map<String, Asset> byPath = new HashMap<>();
+        Map<String, String> urls = new TreeMap<>();
+        long raw = 0;
+        long compressed = 0;
+
+        for (Map.Entry<String, byte[]> file : readAll(directory).entrySet()) {
+            String name = file.getKey();
+            byte[] content = file.getValue();
+            String hash = sha256(content).substring(0, 10);
+
+            int dot = name.lastIndexOf('.');
+            String fingerprinted = dot > 0
+                    ? name.substring(0, dot) + "." + hash + name.substring(dot)
+                    : name + "." + hash;
+            byte[] gzip = gzip(content);
+            if (gzip.length >= content.length) {
+                gzip = null;
+            }
+
+            String path = PREFIX + fingerprinted;
+            byPath.put(path, new Asset(contentType(name), content, gzip, hash));
+            // styles.css -> assets.styles_css en las plantillas
+            urls.put(name.replaceAll("[^A-Za-z0-9]", "_"), path);
+
+            raw += content.length;
+            compressed += gzip != null ? gzip.length : content.length;
+        }
+
+        logger.info("📦 {} recursos estáticos en memoria ({} bytes, {} comprimidos)", byPath.size(), raw, compressed);
+        return new StaticAssets(byPath, Collections.unmodifiableMap(urls));
+    }
+
+    /**
+     * URL con huella de cada recurso, por nombre con '.' y '/' cambiados a '_'
+     */
+    public Map<String, String> urls() {
+        return urls;
+    }
+
+    /**
+     * Ruta GET /assets/*: el recurso en memoria, comprimido si el cliente acepta gzip
+     */
+    public String serve(Request req, Response res) throws IOException {
+        Asset asset = byPath.get(req.pathInfo());
+        if (asset == null) {
+            res.status(404);
+            res.type("text/plain");
+            return "Not found";
+        }
+
+        String acceptEncoding = req.headers("Accept-Encoding");
+        boolean gzip = asset.gzip != null && acceptEncoding != null && acceptEncoding.contains("gzip");
+        String etag = gzip ? asset.gzipEtag : asset.etag;
+
+        res.header("Cache-Control", "public, max-age=31536000, immutable");
+        res.header("ETag", etag);
+        res.header("Vary", "Accept-Encoding");
+        res.type(asset.contentType);
+
+        // El GzipHandler de Jetty quita "--gzip" de If-None-Match y guarda el original
+        String ifNoneMatch = req.attribute(GzipHandler.GZIP_HANDLER_ETAGS);
+        if (ifNoneMatch == null) {
+            ifNoneMatch = req.headers("If-None-Match");
+        }
+        if (ifNoneMatch != null && ConditionalGet.matches(ifNoneMatch, etag)) {
+            res.status(304);
+            return "";
+        }
+
+        byte[] body = asset.raw;
+        if (gzip) {
+            res.header("Content-Encoding", "gzip");
+            body = asset.gzip;
+        }
+        res.raw().setContentLength(body.length);
+        res.raw().getOutputStream().write(body);
+        return "";
+    }
+
+    // ============================================
+    // CARGA
+    // ============================================
+
+    private static Map<String, byte[]> readAll(String directory) {
+        URL root = StaticAssets.class.getClassLoader().getResource(directory);
+        if (root == null) {
+            logger.warn("⚠️ No se encontró el directorio de recursos '{}'", directory);
+            return Map.of();
+        }
+
+        try {
+            URI uri = root.toURI();
+            if (uri.getScheme().equals("jar")) {
+                // Dentro del JAR empaquetado
+                try (FileSystem jar = FileSystems.newFileSystem(uri, Map.of())) {
+                    return readTree(jar.provider().getPath(uri));
+                }
+            }
+            return readTree(Paths.get(uri));
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudieron leer los recursos de " + directory, e);
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Map<String, byte[]> readTree(Path base) throws IOException {
+        Map<String, byte[]> files = new TreeMap<>();
+        List<Path> paths = new ArrayList<>();
+        try (Stream<Path> walk = Files.walk(base)) {
+            walk.filter(Files::isRegularFile).forEach(paths::add);
+        }
+        for (Path path : paths) {
+            String name = base.relativize(path).toString().replace('\\', '/');
+            try (InputStream in = Files.newInputStream(path)) {
+                files.put(name, in.readAllBytes());
+            }
+        }
+        return files;
+    }
+
+    private static byte[] gzip(byte[] content) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(content.length / 2 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(buffer) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            out.write(content);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String contentType(String name) {
+        if (name.endsWith(".css")) {
+            return "text/css; charset=utf-8";
+        }
+        if (name.endsWith(".js")) {
+            return "application/javascript; charset=utf-8";
+        }
+        String guessed = URLConnection.guessContentTypeFromName(name);
+        return guessed != null ? guessed : "application/octet-stream";
+    }
+}
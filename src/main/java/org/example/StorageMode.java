@@ -0,0 +1,137 @@
+package org.example;
+
+import java.util.Collections;
+
+/**
+ * Motor de almacenamiento seleccionado al arrancar con DB_MODE.
+ * Cada modo define su URL por defecto, el driver y el tamaño de pool adecuado.
+ */
+public enum StorageMode {
+    /** PostgreSQL externo (por defecto) */
+    POSTGRES("postgres", "org.postgresql.Driver",
+            "jdbc:postgresql://localhost:5432/auction_store", "postgres", "12345"),
+
+    /** H2 embebido persistido en ./data/reto6 */
+    H2_FILE("h2-file", "org.h2.Driver",
+            "jdbc:h2:file:./data/reto6;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH",
+            "sa", ""),
+
+    /** H2 embebido solo en memoria: sin disco ni servidor, se pierde al parar */
+    H2_MEMORY("h2-mem", "org.h2.Driver",
+            "jdbc:h2:mem:reto6;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1",
+            "sa", "");
+
+    private final String id;
+    private final String driverClassName;
+    private final String defaultUrl;
+    private final String defaultUser;
+    private final String defaultPassword;
+
+    StorageMode(String id, String driverClassName, String defaultUrl, String defaultUser, String defaultPassword) {
+        this.id = id;
+        this.driverClassName = driverClassName;
+        this.defaultUrl = defaultUrl;
+        this.defaultUser = defaultUser;
+        this.defaultPassword = defaultPassword;
+    }
+
+    public String getId() { return id; }
+    public String getDriverClassName() { return driverClassName; }
+    public String getDefaultUrl() { return defaultUrl; }
+    public String getDefaultUser() { return defaultUser; }
+    public String getDefaultPassword() { return defaultPassword; }
+
+    public boolean isEmbedded() {
+        return this != POSTGRES;
+    }
+
+    /**
+     * Conexiones máximas del pool. En H2 no hay latencia de red que ocultar,
+     * así que más conexiones que núcleos solo añaden contención.
+     */
+    public int defaultMaximumPoolSize() {
+        return isEmbedded() ? Math.max(2, Runtime.getRuntime().availableProcessors()) : 10;
+    }
+
+    /**
+     * Conexiones mínimas en reposo; en H2 se mantiene el pool lleno porque abrirlas es barato
+     */
+    public int defaultMinimumIdle() {
+        return isEmbedded() ? defaultMaximumPoolSize() : 2;
+    }
+
+    public long defaultConnectionTimeoutMs() {
+        return isEmbedded() ? 5_000 : 30_000;
+    }
+
+    /**
+     * Vida máxima de una conexión; 0 (sin límite) en H2, donde no hay sesiones remotas que reciclar
+     */
+    public long defaultMaxLifetimeMs() {
+        return isEmbedded() ? 0 : 1_800_000;
+    }
+
+    public long defaultIdleTimeoutMs() {
+        return isEmbedded() ? 0 : 600_000;
+    }
+
+    /**
+     * Cláusula para un INSERT que no falla si la clave ya existe (filas afectadas = 0).
+     * H2 solo acepta ON CONFLICT DO NOTHING sin columna objetivo, que ignora cualquier
+     * restricción UNIQUE: usar solo en tablas cuya única clave es keyColumn (si no, insertIfAbsent).
+     */
+    public String onConflictDoNothing(String keyColumn) {
+        return isEmbedded() ? " ON CONFLICT DO NOTHING" : " ON CONFLICT (" + keyColumn + ") DO NOTHING";
+    }
+
+    /**
+     * INSERT de una fila (un parámetro por columna, en orden) que no hace nada si keyColumn ya
+     * existe (filas afectadas = 0). Solo se ignora ese conflicto: otra restricción UNIQUE sigue
+     * fallando con SQLState 23505. En H2 es un INSERT ... SELECT con WHERE NOT EXISTS por la clave.
+     */
+    public String insertIfAbsent(String table, String keyColumn, String... columns) {
+        String names = String.join(", ", columns);
+        String params = String.join(", ", Collections.nCopies(columns.length, "?"));
+        if (!isEmbedded()) {
+            return "INSERT INTO " + table + " (" + names + ") VALUES (" + params + ")"
+                    + " ON CONFLICT (" + keyColumn + ") DO NOTHING";
+        }
+        StringBuilder values = new StringBuilder();
+        for (String column : columns) {
+            values.append(values.length() == 0 ? "" : ", ").append("v.").append(column);
+        }
+        return "INSERT INTO " + table + " (" + names + ") SELECT " + values
+                + " FROM (VALUES (" + params + ")) AS v (" + names + ")"
+                + " WHERE NOT EXISTS (SELECT 1 FROM " + table + " t WHERE t." + keyColumn + " = v." + keyColumn + ")";
+    }
+
+    /**
+     * Lee DB_MODE (postgres, h2-file, h2-mem); si no está, se deduce de DB_URL
+     */
+    public static StorageMode fromEnv() {
+        String mode = System.getenv("DB_MODE");
+        if (mode == null || mode.isBlank()) {
+            String url = System.getenv("DB_URL");
+            return url != null ? fromUrl(url) : POSTGRES;
+        }
+        for (StorageMode m : values()) {
+            if (m.id.equalsIgnoreCase(mode.trim()) || m.name().equalsIgnoreCase(mode.trim())) {
+                return m;
+            }
+        }
+        throw new IllegalArgumentException("DB_MODE inválido: " + mode + " (usa postgres, h2-file o h2-mem)");
+    }
+
+    /**
+     * Modo correspondiente a una URL JDBC
+     */
+    public static StorageMode fromUrl(String url) {
+        if (url.startsWith("jdbc:h2:mem:")) {
+            return H2_MEMORY;
+        }
+        if (url.startsWith("jdbc:h2:")) {
+            return H2_FILE;
+        }
+        return POSTGRES;
+    }
+}
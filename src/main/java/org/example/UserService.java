@@ -3,30 +3,66 @@ package org.example;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public class UserService {
     private static final Logger logger = LoggerFactory.getLogger(UserService.class);
 
+    // Búsqueda por nombre (más peso) y email
+    private final SearchIndex<User> searchIndex = new SearchIndex<>(
+            List.of(SearchIndex.field(User::getName, 3), SearchIndex.field(User::getEmail, 2)));
+
+    /**
+     * Carga todos los usuarios en el índice de búsqueda (al arrancar)
+     */
+    public void buildSearchIndex() {
+        String sql = "SELECT id, name, email FROM users";
+        int loaded = 0;
+
+        try (Connection conn = DatabaseManager.getConnection("UserService.buildSearchIndex");
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            searchIndex.clear();
+            while (rs.next()) {
+                User user = readUser(rs);
+                searchIndex.put(user.getId(), user);
+                loaded++;
+            }
+
+            logger.info("🔎 Índice de búsqueda de usuarios cargado: {} usuarios", loaded);
+
+        } catch (SQLException e) {
+            logger.error("❌ Error al cargar el índice de búsqueda de usuarios", e);
+            throw new RuntimeException("Error al cargar el índice de búsqueda: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Contadores del índice de búsqueda
+     */
+    public Map<String, Object> searchStats() {
+        return searchIndex.stats();
+    }
+
     /**
      * Obtiene todos los usuarios
      */
     public Collection<User> getAll() {
         List<User> users = new ArrayList<>();
-        String sql = "SELECT id, name, email, created_at FROM users ORDER BY created_at DESC";
+        String sql = "SELECT id, name, email, created_at FROM users ORDER BY created_at DESC, id DESC";
 
-        try (Connection conn = DatabaseManager.getConnection();
+        try (Connection conn = DatabaseManager.getConnection("UserService.getAll");
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
             while (rs.next()) {
-                User user = new User();
-                user.setId(rs.getString("id"));
-                user.setName(rs.getString("name"));
-                user.setEmail(rs.getString("email"));
+                User user = readUser(rs);
                 users.add(user);
             }
 
@@ -39,23 +75,91 @@ public class UserService {
         return users;
     }
 
+    /**
+     * Obtiene una página de usuarios ordenada por (created_at, id) descendente
+     */
+    public Page<User> getPage(String cursor, int limit) {
+        Page.Cursor after = Page.decodeCursor(cursor);
+        String sql = "SELECT id, name, email, created_at FROM users "
+                + (after != null ? "WHERE (created_at, id) < (?, ?) " : "")
+                + "ORDER BY created_at DESC, id DESC LIMIT ?";
+
+        List<User> users = new ArrayList<>();
+        String next = null;
+
+        try (Connection conn = DatabaseManager.getConnection("UserService.getPage");
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            int i = 1;
+            if (after != null) {
+                pstmt.setTimestamp(i++, after.getCreatedAt());
+                pstmt.setString(i++, after.getId());
+            }
+            // Se pide una fila extra para saber si hay página siguiente
+            pstmt.setInt(i, limit + 1);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                Timestamp lastCreatedAt = null;
+                while (rs.next()) {
+                    if (users.size() == limit) {
+                        User last = users.get(users.size() - 1);
+                        next = Page.encodeCursor(lastCreatedAt, last.getId());
+                        break;
+                    }
+                    users.add(readUser(rs));
+                    lastCreatedAt = rs.getTimestamp("created_at");
+                }
+            }
+
+        } catch (SQLException e) {
+            logger.error("❌ Error al obtener página de usuarios", e);
+            throw new RuntimeException("Error al obtener usuarios: " + e.getMessage());
+        }
+
+        return new Page<>(users, next);
+    }
+
+    /**
+     * Recorre todos los usuarios sin cargarlos en memoria (fetch size de JDBC)
+     */
+    public void streamAll(RowHandler<User> handler) throws IOException {
+        String sql = "SELECT id, name, email FROM users ORDER BY created_at DESC, id DESC";
+
+        try (Connection conn = DatabaseManager.getConnection("UserService.streamAll")) {
+            // PostgreSQL solo usa cursores en el servidor con autocommit desactivado
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setFetchSize(DatabaseManager.STREAM_FETCH_SIZE);
+
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        handler.handle(readUser(rs));
+                    }
+                }
+            }
+            conn.commit();
+
+        } catch (SQLException e) {
+            logger.error("❌ Error al recorrer usuarios", e);
+            throw new RuntimeException("Error al obtener usuarios: " + e.getMessage());
+        }
+    }
+
     /**
      * Obtiene un usuario por ID
      */
     public User get(String id) {
         String sql = "SELECT id, name, email FROM users WHERE id = ?";
 
-        try (Connection conn = DatabaseManager.getConnection();
+        try (Connection conn = DatabaseManager.getConnection("UserService.get");
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setString(1, id);
 
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
-                    User user = new User();
-                    user.setId(rs.getString("id"));
-                    user.setName(rs.getString("name"));
-                    user.setEmail(rs.getString("email"));
+                    User user = readUser(rs);
 
                     logger.debug("✅ Usuario encontrado: {}", id);
                     return user;
@@ -71,12 +175,22 @@ public class UserService {
     }
 
     /**
-     * Agrega un nuevo usuario
+     * El email ya pertenece a otro usuario (restricción UNIQUE de users.email)
+     */
+    public static final class EmailTakenException extends RuntimeException {
+        public EmailTakenException(String email) {
+            super("Email already in use: " + email);
+        }
+    }
+
+    /**
+     * Agrega un nuevo usuario en una sola sentencia; devuelve false si el id ya existe
+     * y lanza EmailTakenException si el email es de otro usuario
      */
-    public void add(User user) {
-        String sql = "INSERT INTO users (id, name, email) VALUES (?, ?, ?)";
+    public boolean add(User user) {
+        String sql = DatabaseManager.getMode().insertIfAbsent("users", "id", "id", "name", "email");
 
-        try (Connection conn = DatabaseManager.getConnection();
+        try (Connection conn = DatabaseManager.getConnection("UserService.add");
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setString(1, user.getId());
@@ -86,22 +200,33 @@ public class UserService {
             int rows = pstmt.executeUpdate();
 
             if (rows > 0) {
-                logger.info("✅ Usuario creado: {} ({})", user.getName(), user.getId());
+                logger.debug("✅ Usuario creado: {} ({})", user.getName(), user.getId());
+                changed(user.getId(), new User(user.getId(), user.getName(), user.getEmail()));
             }
 
+            return rows > 0;
+
         } catch (SQLException e) {
+            if (isUniqueViolation(e)) {
+                // Otro alta con el mismo id ganó entre la comprobación y el INSERT, o el email ya existe
+                if (exists(user.getId())) {
+                    return false;
+                }
+                throw new EmailTakenException(user.getEmail());
+            }
             logger.error("❌ Error al crear usuario: {}", user.getId(), e);
             throw new RuntimeException("Error al crear usuario: " + e.getMessage());
         }
     }
 
     /**
-     * Actualiza un usuario existente
+     * Actualiza un usuario existente; devuelve false si no existe
+     * y lanza EmailTakenException si el email es de otro usuario
      */
-    public void update(String id, User user) {
+    public boolean update(String id, User user) {
         String sql = "UPDATE users SET name = ?, email = ? WHERE id = ?";
 
-        try (Connection conn = DatabaseManager.getConnection();
+        try (Connection conn = DatabaseManager.getConnection("UserService.update");
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setString(1, user.getName());
@@ -111,24 +236,30 @@ public class UserService {
             int rows = pstmt.executeUpdate();
 
             if (rows > 0) {
-                logger.info("✅ Usuario actualizado: {}", id);
+                logger.debug("✅ Usuario actualizado: {}", id);
+                changed(id, new User(id, user.getName(), user.getEmail()));
             } else {
-                logger.warn("⚠️ No se encontró usuario para actualizar: {}", id);
+                logger.debug("⚠️ No se encontró usuario para actualizar: {}", id);
             }
 
+            return rows > 0;
+
         } catch (SQLException e) {
+            if (isUniqueViolation(e)) {
+                throw new EmailTakenException(user.getEmail());
+            }
             logger.error("❌ Error al actualizar usuario: {}", id, e);
             throw new RuntimeException("Error al actualizar usuario: " + e.getMessage());
         }
     }
 
     /**
-     * Elimina un usuario
+     * Elimina un usuario; devuelve false si no existe
      */
-    public void delete(String id) {
+    public boolean delete(String id) {
         String sql = "DELETE FROM users WHERE id = ?";
 
-        try (Connection conn = DatabaseManager.getConnection();
+        try (Connection conn = DatabaseManager.getConnection("UserService.delete");
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setString(1, id);
@@ -136,11 +267,14 @@ public class UserService {
             int rows = pstmt.executeUpdate();
 
             if (rows > 0) {
-                logger.info("✅ Usuario eliminado: {}", id);
+                logger.debug("✅ Usuario eliminado: {}", id);
+                changed(id, null);
             } else {
-                logger.warn("⚠️ No se encontró usuario para eliminar: {}", id);
+                logger.debug("⚠️ No se encontró usuario para eliminar: {}", id);
             }
 
+            return rows > 0;
+
         } catch (SQLException e) {
             logger.error("❌ Error al eliminar usuario: {}", id, e);
             throw new RuntimeException("Error al eliminar usuario: " + e.getMessage());
@@ -153,7 +287,7 @@ public class UserService {
     public boolean exists(String id) {
         String sql = "SELECT COUNT(*) FROM users WHERE id = ?";
 
-        try (Connection conn = DatabaseManager.getConnection();
+        try (Connection conn = DatabaseManager.getConnection("UserService.exists");
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setString(1, id);
@@ -172,35 +306,38 @@ public class UserService {
     }
 
     /**
-     * Busca usuarios por nombre o email
+     * Busca usuarios por nombre o email (palabras completas, prefijos o fragmentos)
      */
-    public Collection<User> search(String query) {
-        List<User> users = new ArrayList<>();
-        String sql = "SELECT id, name, email FROM users WHERE LOWER(name) LIKE ? OR LOWER(email) LIKE ?";
-
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            String searchPattern = "%" + query.toLowerCase() + "%";
-            pstmt.setString(1, searchPattern);
-            pstmt.setString(2, searchPattern);
-
-            try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    User user = new User();
-                    user.setId(rs.getString("id"));
-                    user.setName(rs.getString("name"));
-                    user.setEmail(rs.getString("email"));
-                    users.add(user);
-                }
-            }
-
-            logger.debug("🔍 Búsqueda '{}' encontró {} usuarios", query, users.size());
+    public SearchIndex.Hits<User> search(String query, int limit) {
+        SearchIndex.Hits<User> hits = searchIndex.search(query, limit);
+        logger.debug("🔍 Búsqueda '{}' encontró {} usuarios", query, hits.getTotal());
+        return hits;
+    }
 
-        } catch (SQLException e) {
-            logger.error("❌ Error al buscar usuarios", e);
+    /**
+     * Tras una escritura confirmada que cambió la fila: índice de búsqueda (indexed null si se
+     * borró). Lo que se publique después de la escritura (versiones, ETag) va detrás del índice.
+     */
+    private void changed(String id, User indexed) {
+        if (indexed != null) {
+            searchIndex.put(id, indexed);
+        } else {
+            searchIndex.remove(id);
         }
+    }
 
-        return users;
+    /**
+     * Violación de UNIQUE o PRIMARY KEY (mismo SQLState en PostgreSQL y H2)
+     */
+    private static boolean isUniqueViolation(SQLException e) {
+        return "23505".equals(e.getSQLState());
+    }
+
+    private static User readUser(ResultSet rs) throws SQLException {
+        User user = new User();
+        user.setId(rs.getString("id"));
+        user.setName(rs.getString("name"));
+        user.setEmail(rs.getString("email"));
+        return user;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,147 @@
+package org.example;
+
+import com.github.mustachejava.DefaultMustacheFactory;
+import com.github.mustachejava.Mustache;
+import spark.Response;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Vistas HTML con un único motor Mustache y las plantillas compiladas al arrancar.
+ * Las páginas se escriben directamente en la respuesta; las que dependen solo del
+ * catálogo se guardan ya renderizadas (bytes UTF-8) junto a la versión con la que
+ * se generaron y se vuelven a renderizar cuando CatalogVersions cambia.
+ * Se guardan como mucho VIEW_CACHE_MAX páginas; al llenarse se descarta la menos usada.
+ */
+public class Views {
+    private static final int MAX_PAGES = Integer.parseInt(System.getenv().getOrDefault("VIEW_CACHE_MAX", "10000"));
+
+    public final Mustache itemsList;
+    public final Mustache itemDetail;
+    public final Mustache offersList;
+
+    private final int maxPages;
+    private final Map<String, Page> pages;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder renders = new LongAdder();
+
+    /**
+     * Página renderizada y la versión del catálogo con la que se generó
+     */
+    private static final class Page {
+        final String version;
+        final byte[] html;
+
+        Page(String version, byte[] html) {
+            this.version = version;
+            this.html = html;
+        }
+    }
+
+    // Scope común a todas las páginas: URLs de los recursos estáticos ({{assets.styles_css}})
+    private final Map<String, Object> globals;
+
+    public Views(StaticAssets assets) {
+        this(assets, MAX_PAGES);
+    }
+
+    Views(StaticAssets assets, int maxPages) {
+        this.maxPages = maxPages;
+        this.pages = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Page> eldest) {
+                return size() > Views.this.maxPages;
+            }
+        };
+        this.globals = Map.of("assets", assets.urls());
+        DefaultMustacheFactory factory = new DefaultMustacheFactory("templates");
+        itemsList = factory.compile("items-list.mustache");
+        itemDetail = factory.compile("item-detail.mustache");
+        offersList = factory.compile("offers-list.mustache");
+    }
+
+    /**
+     * Renderiza la plantilla en la respuesta; los scopes se buscan del último al primero
+     */
+    public String render(Response res, Mustache template, Object... scopes) throws IOException {
+        res.type("text/html; charset=utf-8");
+        OutputStream out = res.raw().getOutputStream();
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        template.execute(writer, withGlobals(scopes));
+        writer.flush();
+        return "";
+    }
+
+    /**
+     * Envía la página guardada bajo key si se generó con la misma versión (p. ej. el ETag);
+     * si no, la renderiza con scopes, la guarda y la envía.
+     * La versión debe leerse antes de cargar los datos que usa la página.
+     */
+    public String cached(Response res, String key, String version, Mustache template,
+                         Supplier<Object[]> scopes) throws IOException {
+        Page page;
+        synchronized (pages) {
+            page = pages.get(key);
+        }
+        if (page == null || !page.version.equals(version)) {
+            renders.increment();
+            page = new Page(version, renderToBytes(template, withGlobals(scopes.get())));
+            if (maxPages > 0) {
+                synchronized (pages) {
+                    pages.put(key, page);
+                }
+            }
+        } else {
+            hits.increment();
+        }
+
+        res.type("text/html; charset=utf-8");
+        res.raw().setContentLength(page.html.length);
+        res.raw().getOutputStream().write(page.html);
+        return "";
+    }
+
+    /**
+     * Descarta la página guardada bajo key (p. ej. "item:" + id al borrar el item)
+     */
+    public void evict(String key) {
+        synchronized (pages) {
+            pages.remove(key);
+        }
+    }
+
+    /**
+     * Los scopes de la página van después de los globales (tienen prioridad)
+     */
+    private Object[] withGlobals(Object[] scopes) {
+        Object[] all = new Object[scopes.length + 1];
+        all[0] = globals;
+        System.arraycopy(scopes, 0, all, 1, scopes.length);
+        return all;
+    }
+
+    private static byte[] renderToBytes(Mustache template, Object[] scopes) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(16 * 1024);
+        Writer writer = new OutputStreamWriter(buffer, StandardCharsets.UTF_8);
+        template.execute(writer, scopes);
+        writer.flush();
+        return buffer.toByteArray();
+    }
+
+    public Map<String, Object> stats() {
+        int size;
+        synchronized (pages) {
+            size = pages.size();
+        }
+        return Map.of("pages", size, "hits", hits.sum(), "renders", renders.sum());
+    }
+}
@@ -65,10 +65,11 @@ document.addEventListener('DOMContentLoaded', function() {
                 });
             })
             .then(data => {
+                // El nuevo estado llega por el stream del item; no hace falta recargar
                 alert('¡Tu oferta ha sido enviada exitosamente!');
                 offerForm.reset();
                 offerForm.style.display = 'none';
-                window.location.href = '/offers';
+                offerBtn.innerHTML = '<i class="bi bi-hand-thumbs-up"></i> Hacer una Oferta';
             })
             .catch(error => {
                 alert('Error al enviar la oferta: ' + error.message);
@@ -81,4 +82,35 @@ document.addEventListener('DOMContentLoaded', function() {
             });
         });
     }
-});
\ No newline at end of file
+});
+
+// Estado de la subasta en vivo (Server-Sent Events)
+document.addEventListener('DOMContentLoaded', function() {
+    const status = document.getElementById('bid-status');
+    const itemInput = document.getElementById('item-id');
+    if (!status || !itemInput || !window.EventSource) {
+        return;
+    }
+
+    const countEl = document.getElementById('offer-count');
+    const highestEl = document.getElementById('highest-offer');
+
+    function flash(el, text) {
+        if (el.textContent === text) {
+            return;
+        }
+        el.textContent = text;
+        el.classList.add('updated');
+        setTimeout(() => el.classList.remove('updated'), 1500);
+    }
+
+    // EventSource se reconecta solo si se corta la conexión
+    const source = new EventSource('/api/items/' + encodeURIComponent(itemInput.value) + '/stream');
+    source.addEventListener('offers', function(e) {
+        const state = JSON.parse(e.data);
+        flash(countEl, String(state.offerCount));
+        flash(highestEl, state.highestOffer != null ? '$' + state.highestOffer.toFixed(2) : 'Sin ofertas');
+    });
+
+    window.addEventListener('beforeunload', () => source.close());
+});
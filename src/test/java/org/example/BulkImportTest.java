@@ -0,0 +1,119 @@
+package org.example;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Resultados por registro y reintento uno a uno cuando falla el bloque
+ */
+class BulkImportTest {
+
+    @BeforeAll
+    static void database() {
+        TestDatabase.init();
+    }
+
+    /**
+     * Escritor que falla el bloque entero si contiene el id "bad"
+     */
+    static final class FakeWriter implements BulkImport.ChunkWriter<Item> {
+        final List<Integer> calls = new ArrayList<>();
+
+        @Override
+        public List<BulkImport.Result> write(List<Item> chunk) {
+            calls.add(chunk.size());
+            List<BulkImport.Result> results = new ArrayList<>();
+            for (Item item : chunk) {
+                if (item.getId().equals("bad")) {
+                    throw new IllegalStateException("valor fuera de rango");
+                }
+                results.add(item.getId().equals("dup")
+                        ? BulkImport.Result.conflict(item.getId(), "Item already exists")
+                        : BulkImport.Result.created(item.getId()));
+            }
+            return results;
+        }
+    }
+
+    private static JsonObject run(BulkImport.ChunkWriter<Item> writer, String body, boolean array) throws IOException {
+        BulkImport<Item> bulk = new BulkImport<>("items", JsonAdapters.GSON.getAdapter(Item.class),
+                item -> item.getId() == null ? "Missing id" : null, Item::getId, writer);
+        StringWriter json = new StringWriter();
+        bulk.run(new StringReader(body), array, new JsonWriter(json));
+        return JsonParser.parseString(json.toString()).getAsJsonObject();
+    }
+
+    @Test
+    void failedChunkIsRetriedOneByOneSoOnlyTheBadRecordFails() throws IOException {
+        FakeWriter writer = new FakeWriter();
+        JsonObject response = run(writer,
+                "[{\"id\":\"a\",\"name\":\"A\"},{\"id\":\"bad\",\"name\":\"B\"},{\"id\":\"dup\",\"name\":\"C\"},{\"id\":\"d\",\"name\":\"D\"}]",
+                true);
+
+        // Bloque entero, luego un intento por registro
+        assertEquals(List.of(4, 1, 1, 1, 1), writer.calls);
+
+        JsonArray results = response.getAsJsonArray("results");
+        String[] ids = {"a", "bad", "dup", "d"};
+        String[] statuses = {"created", "failed", "conflict", "created"};
+        for (int i = 0; i < ids.length; i++) {
+            JsonObject result = results.get(i).getAsJsonObject();
+            assertEquals(i, result.get("index").getAsInt());
+            assertEquals(ids[i], result.get("id").getAsString());
+            assertEquals(statuses[i], result.get("status").getAsString());
+        }
+        assertEquals("valor fuera de rango", results.get(1).getAsJsonObject().get("message").getAsString());
+        assertEquals(2, response.get("created").getAsInt());
+        assertEquals(1, response.get("conflicts").getAsInt());
+        assertEquals(1, response.get("failed").getAsInt());
+    }
+
+    @Test
+    void invalidLinesKeepTheirPositionInNdjson() throws IOException {
+        FakeWriter writer = new FakeWriter();
+        JsonObject response = run(writer, "{\"id\":\"a\"}\n{no es json\n\n{\"name\":\"sin id\"}\n{\"id\":\"b\"}\n", false);
+
+        JsonArray results = response.getAsJsonArray("results");
+        assertEquals(4, results.size());
+        assertEquals("created", results.get(0).getAsJsonObject().get("status").getAsString());
+        JsonObject malformed = results.get(1).getAsJsonObject();
+        assertEquals(1, malformed.get("index").getAsInt());
+        assertEquals("invalid", malformed.get("status").getAsString());
+        assertFalse(malformed.has("id"));
+        assertEquals("Missing id", results.get(2).getAsJsonObject().get("message").getAsString());
+        assertEquals("b", results.get(3).getAsJsonObject().get("id").getAsString());
+        assertEquals(List.of(2), writer.calls);
+    }
+
+    @Test
+    void offerResultsUseTheItemIdAndAddTheGeneratedId() {
+        new ItemService().add(new Item("bulk-1", "Radio", "", "15"));
+        OfferService offers = new OfferService();
+
+        List<BulkImport.Result> results = offers.addAll(List.of(
+                new Offer("bulk-1", "Ana", "ana@example.com", 20),
+                new Offer("bulk-missing", "Luis", "luis@example.com", 30)));
+
+        assertEquals(BulkImport.Result.CREATED, results.get(0).getStatus());
+        assertEquals("bulk-1", results.get(0).getId());
+        assertTrue(results.get(0).getDbId() != null && results.get(0).getDbId() > 0);
+        assertEquals(BulkImport.Result.FAILED, results.get(1).getStatus());
+        assertEquals("bulk-missing", results.get(1).getId());
+        assertNull(results.get(1).getDbId());
+    }
+}
@@ -0,0 +1,149 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import spark.Request;
+import spark.Response;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Respuestas 304 a partir de If-None-Match / If-Modified-Since
+ */
+class ConditionalGetTest {
+
+    /**
+     * Petición con las cabeceras indicadas
+     */
+    static final class FakeRequest extends Request {
+        private final Map<String, String> headers = new HashMap<>();
+
+        FakeRequest header(String name, String value) {
+            headers.put(name, value);
+            return this;
+        }
+
+        @Override
+        public String headers(String header) {
+            return headers.get(header);
+        }
+    }
+
+    /**
+     * Respuesta que solo guarda el estado y las cabeceras
+     */
+    static final class FakeResponse extends Response {
+        final Map<String, String> headers = new HashMap<>();
+        int status = 200;
+
+        @Override
+        public void header(String header, String value) {
+            headers.put(header, value);
+        }
+
+        @Override
+        public void status(int statusCode) {
+            status = statusCode;
+        }
+
+        @Override
+        public int status() {
+            return status;
+        }
+    }
+
+    @Test
+    void matchingETagAnswers304() {
+        CatalogVersions.Version version = CatalogVersions.item("cg-1");
+        FakeResponse first = new FakeResponse();
+        assertFalse(ConditionalGet.notModified(new FakeRequest(), first, version));
+        String etag = first.headers.get("ETag");
+        assertEquals(ConditionalGet.etag(version), etag);
+
+        FakeResponse second = new FakeResponse();
+        assertTrue(ConditionalGet.notModified(new FakeRequest().header("If-None-Match", etag), second, version));
+        assertEquals(304, second.status);
+    }
+
+    @Test
+    void changedVersionIsSentAgain() {
+        String etag = ConditionalGet.etag(CatalogVersions.item("cg-2"));
+        CatalogVersions.itemChanged("cg-2");
+
+        CatalogVersions.Version version = CatalogVersions.item("cg-2");
+        FakeResponse res = new FakeResponse();
+        assertFalse(ConditionalGet.notModified(new FakeRequest().header("If-None-Match", etag), res, version));
+        assertEquals(200, res.status);
+        assertEquals(ConditionalGet.etag(version), res.headers.get("ETag"));
+    }
+
+    @Test
+    void tagTakenBeforeAChangeIsNotFresh() {
+        ConditionalGet.Tag tag = ConditionalGet.tag(CatalogVersions.item("cg-3"));
+        CatalogVersions.itemChanged("cg-3");
+
+        // El cliente ya tiene la versión nueva; la respuesta se cargó con la anterior
+        FakeRequest req = new FakeRequest().header("If-None-Match", ConditionalGet.etag(CatalogVersions.item("cg-3")));
+        assertFalse(ConditionalGet.notModified(req, new FakeResponse(), tag));
+    }
+
+    @Test
+    void ifModifiedSinceUsesWholeSeconds() {
+        long modified = 1_700_000_000_250L;
+        String sameSecond = httpDate(1_700_000_000_000L);
+        String before = httpDate(1_699_999_999_000L);
+        long later = modified + 5_000;
+
+        assertTrue(ConditionalGet.notModifiedSince(sameSecond, modified, later));
+        assertFalse(ConditionalGet.notModifiedSince(before, modified, later));
+        assertFalse(ConditionalGet.notModifiedSince("no es una fecha", modified, later));
+    }
+
+    @Test
+    void changeInTheCurrentSecondIsNeverFreshByDate() {
+        long modified = 1_700_000_000_250L;
+        String sameSecond = httpDate(1_700_000_000_000L);
+
+        // Otro cambio a los 700 ms tendría el mismo Last-Modified
+        assertFalse(ConditionalGet.notModifiedSince(sameSecond, modified, modified + 450));
+        assertTrue(ConditionalGet.notModifiedSince(sameSecond, modified, modified + 750));
+    }
+
+    @Test
+    void recentChangeIsSentWithoutLastModified() {
+        CatalogVersions.itemChanged("cg-4");
+        ConditionalGet.Tag tag = ConditionalGet.tag(CatalogVersions.item("cg-4"));
+        long modified = tag.getLastModified();
+
+        FakeResponse now = new FakeResponse();
+        ConditionalGet.notModified(new FakeRequest(), now, tag, modified / 1000 * 1000 + 999);
+        assertTrue(now.headers.containsKey("ETag"));
+        assertFalse(now.headers.containsKey("Last-Modified"));
+
+        FakeResponse later = new FakeResponse();
+        ConditionalGet.notModified(new FakeRequest(), later, tag, modified + 1000);
+        assertEquals(httpDate(modified), later.headers.get("Last-Modified"));
+    }
+
+    @Test
+    void ifNoneMatchWinsOverIfModifiedSince() {
+        CatalogVersions.itemChanged("cg-5");
+        CatalogVersions.Version version = CatalogVersions.item("cg-5");
+        FakeRequest req = new FakeRequest()
+                .header("If-None-Match", "\"otra\"")
+                .header("If-Modified-Since", httpDate(System.currentTimeMillis() + 60_000));
+
+        assertFalse(ConditionalGet.notModified(req, new FakeResponse(), version));
+    }
+
+    private static String httpDate(long millis) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.ofEpochMilli(millis).atOffset(ZoneOffset.UTC));
+    }
+}
@@ -0,0 +1,80 @@
+package org.example;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Al eliminar un item no deben quedar rastros en la caché, el libro de ofertas ni item_offer_stats
+ */
+class ItemDeleteTest {
+
+    @BeforeAll
+    static void database() {
+        TestDatabase.init();
+    }
+
+    @Test
+    void deletedItemLeavesNoCachedItemOrOffers() {
+        ItemService items = new ItemService();
+        OfferService offers = new OfferService();
+
+        assertTrue(items.add(new Item("del-1", "Lámpara", "De pie", "10")));
+        offers.add(new Offer("del-1", "Ana", "ana@example.com", 12.5));
+        offers.add(new Offer("del-1", "Luis", "luis@example.com", 15));
+        assertNotNull(items.get("del-1"));
+        assertEquals(2, offers.countByItemId("del-1"));
+        assertEquals(2, offers.getStats("del-1").getOfferCount());
+
+        assertTrue(items.delete("del-1"));
+        offers.itemDeleted("del-1");
+
+        assertNull(items.get("del-1"));
+        assertEquals(0, offers.countByItemId("del-1"));
+        assertNull(offers.getHighestOffer("del-1"));
+        assertTrue(offers.getTopOffers("del-1", 10).isEmpty());
+        assertEquals(0, offers.getStats("del-1").getOfferCount());
+    }
+
+    @Test
+    void deleteChangesTheOfferVersionsUsedByETags() {
+        ItemService items = new ItemService();
+        OfferService offers = new OfferService();
+
+        assertTrue(items.add(new Item("del-3", "Cámara", "", "90")));
+        offers.add(new Offer("del-3", "Ana", "ana@example.com", 100));
+        String itemOffers = ConditionalGet.etag(CatalogVersions.offers("del-3"));
+        String allOffers = ConditionalGet.etag(CatalogVersions.offers());
+
+        assertTrue(items.delete("del-3"));
+        offers.itemDeleted("del-3");
+
+        assertNotEquals(itemOffers, ConditionalGet.etag(CatalogVersions.offers("del-3")));
+        assertNotEquals(allOffers, ConditionalGet.etag(CatalogVersions.offers()));
+    }
+
+    @Test
+    void recreatedItemDoesNotInheritOffers() {
+        ItemService items = new ItemService();
+        OfferService offers = new OfferService();
+
+        assertTrue(items.add(new Item("del-2", "Reloj", "", "50")));
+        offers.add(new Offer("del-2", "Eva", "eva@example.com", 80));
+        assertTrue(items.delete("del-2"));
+        offers.itemDeleted("del-2");
+
+        assertTrue(items.add(new Item("del-2", "Reloj", "Otro", "60")));
+        assertEquals(0, offers.countByItemId("del-2"));
+        assertEquals(0, offers.getStats("del-2").getOfferCount());
+
+        offers.add(new Offer("del-2", "Sol", "sol@example.com", 20));
+        assertEquals(1, offers.countByItemId("del-2"));
+        assertEquals(offers.getStats("del-2").getOfferCount(), offers.countByItemId("del-2"));
+        assertEquals(20, offers.getHighestOffer("del-2").getAmount());
+    }
+}
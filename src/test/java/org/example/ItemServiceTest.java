@@ -0,0 +1,98 @@
+package org.example;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * La caché y las versiones solo cambian cuando la escritura cambia una fila
+ */
+class ItemServiceTest {
+
+    @BeforeAll
+    static void database() {
+        TestDatabase.init();
+    }
+
+    @Test
+    void successfulUpdateIsVisibleAndChangesTheVersion() {
+        ItemService items = new ItemService();
+        assertTrue(items.add(new Item("svc-1", "Silla", "", "20")));
+        assertEquals("Silla", items.get("svc-1").getName());
+        String etag = ConditionalGet.etag(CatalogVersions.item("svc-1"));
+
+        assertTrue(items.update("svc-1", new Item("svc-1", "Silla plegable", "", "25")));
+
+        assertEquals("Silla plegable", items.get("svc-1").getName());
+        assertNotEquals(etag, ConditionalGet.etag(CatalogVersions.item("svc-1")));
+    }
+
+    @Test
+    void writesThatChangeNothingKeepTheVersions() {
+        ItemService items = new ItemService();
+        assertTrue(items.add(new Item("svc-2", "Mesa", "", "50")));
+        String item = ConditionalGet.etag(CatalogVersions.item("svc-2"));
+        String missing = ConditionalGet.etag(CatalogVersions.item("svc-missing"));
+        String all = ConditionalGet.etag(CatalogVersions.items());
+
+        assertFalse(items.add(new Item("svc-2", "Otra mesa", "", "60")));
+        assertFalse(items.update("svc-missing", new Item("svc-missing", "Nada", "", "1")));
+        assertFalse(items.delete("svc-missing"));
+
+        assertEquals(item, ConditionalGet.etag(CatalogVersions.item("svc-2")));
+        assertEquals(missing, ConditionalGet.etag(CatalogVersions.item("svc-missing")));
+        assertEquals(all, ConditionalGet.etag(CatalogVersions.items()));
+        assertEquals("Mesa", items.get("svc-2").getName());
+    }
+
+    @Test
+    void bulkInsertChangesOnlyTheCreatedItems() {
+        ItemService items = new ItemService();
+        assertTrue(items.add(new Item("svc-3", "Sofá", "", "300")));
+        assertNull(items.get("svc-4"));
+        String existing = ConditionalGet.etag(CatalogVersions.item("svc-3"));
+
+        List<BulkImport.Result> results = items.addAll(List.of(
+                new Item("svc-3", "Sofá", "", "300"),
+                new Item("svc-4", "Puf", "", "40")));
+
+        assertEquals(BulkImport.Result.CONFLICT, results.get(0).getStatus());
+        assertEquals(BulkImport.Result.CREATED, results.get(1).getStatus());
+        assertEquals(existing, ConditionalGet.etag(CatalogVersions.item("svc-3")));
+        // La búsqueda anterior dejó "no existe" en la caché: el alta debe borrarlo
+        assertEquals("Puf", items.get("svc-4").getName());
+    }
+
+    @Test
+    void rowSwallowedByTheConflictClauseIsReportedAsConflict() {
+        ItemService items = new ItemService();
+        assertTrue(items.add(new Item("svc-5", "Lámpara", "Original", "10")));
+        String version = ConditionalGet.etag(CatalogVersions.item("svc-5"));
+
+        // Otro escritor insertó svc-5 después de la consulta de ids existentes
+        ItemService racing = new ItemService() {
+            @Override
+            Set<String> existingIds(Connection conn, List<Item> batch) {
+                return Set.of();
+            }
+        };
+        List<BulkImport.Result> results = racing.addAll(List.of(
+                new Item("svc-5", "Lámpara", "Perdedora", "99"),
+                new Item("svc-6", "Flexo", "", "12")));
+
+        assertEquals(BulkImport.Result.CONFLICT, results.get(0).getStatus());
+        assertEquals(BulkImport.Result.CREATED, results.get(1).getStatus());
+        assertEquals(version, ConditionalGet.etag(CatalogVersions.item("svc-5")));
+        assertEquals("Original", racing.get("svc-5").getDescription());
+        assertTrue(racing.search("perdedora", 10).getHits().isEmpty());
+    }
+}
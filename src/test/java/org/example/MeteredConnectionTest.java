@@ -0,0 +1,53 @@
+package org.example;
+
+import org.h2.jdbc.JdbcConnection;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.concurrent.Semaphore;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * El permiso y la métrica se registran una sola vez, al cerrar la conexión
+ */
+class MeteredConnectionTest {
+
+    @BeforeAll
+    static void database() {
+        TestDatabase.init();
+    }
+
+    @Test
+    void closeReleasesThePermitOnceAndRecordsTheOperation() throws Exception {
+        Semaphore permits = new Semaphore(1);
+        permits.acquire();
+
+        Connection conn = new MeteredConnection(DatabaseManager.getConnection(), permits, "MeteredConnectionTest.query");
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery("SELECT 1")) {
+            assertTrue(rs.next());
+            assertEquals(1, rs.getInt(1));
+        }
+        assertEquals(0, permits.availablePermits());
+
+        conn.close();
+        conn.close();
+
+        assertEquals(1, permits.availablePermits());
+        assertTrue(conn.isClosed());
+        assertTrue(Metrics.render().contains("operation=\"MeteredConnectionTest.query\""));
+    }
+
+    @Test
+    void unwrapFindsTheWrapperAndTheDriverConnection() throws Exception {
+        try (Connection conn = new MeteredConnection(DatabaseManager.getConnection(), null, null)) {
+            assertSame(conn, conn.unwrap(MeteredConnection.class));
+            assertTrue(conn.isWrapperFor(JdbcConnection.class));
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OfferBookTest {
+
+    @Test
+    void keepsOffersOrderedByAmountAndOldestFirstOnTies() {
+        OfferBook book = new OfferBook();
+        book.add(new Offer("item1", "Ana", "ana@example.com", 10));
+        book.add(new Offer("item1", "Luis", "luis@example.com", 30));
+        book.add(new Offer("item1", "Eva", "eva@example.com", 30));
+
+        List<Offer> top = book.top("item1", 2);
+        assertEquals(List.of("Luis", "Eva"), top.stream().map(Offer::getName).toList());
+        assertEquals(3, book.count("item1"));
+        assertEquals("Luis", book.highest("item1").getName());
+    }
+
+    @Test
+    void removeDropsTheItemOffersAndItsCount() {
+        OfferBook book = new OfferBook();
+        book.add(new Offer("item1", "Ana", "ana@example.com", 10));
+        book.add(new Offer("item1", "Luis", "luis@example.com", 20));
+        book.add(new Offer("item2", "Eva", "eva@example.com", 5));
+
+        book.remove("item1");
+
+        assertEquals(0, book.count("item1"));
+        assertNull(book.highest("item1"));
+        assertTrue(book.top("item1", 10).isEmpty());
+        assertEquals(1, book.count("item2"));
+
+        // Un item nuevo con el mismo id empieza sin ofertas heredadas
+        book.add(new Offer("item1", "Sol", "sol@example.com", 7));
+        assertEquals(1, book.count("item1"));
+        assertEquals(7, book.highest("item1").getAmount());
+    }
+
+    @Test
+    void offerCommittedBeforeARemoveDoesNotReviveTheBook() {
+        OfferBook book = new OfferBook();
+        book.add(new Offer("item1", "Ana", "ana@example.com", 10));
+
+        // La oferta se confirmó con la época anterior y llega al libro después del borrado
+        long epoch = book.epoch("item1");
+        book.remove("item1");
+        assertFalse(book.add(new Offer("item1", "Luis", "luis@example.com", 20), epoch));
+        assertEquals(0, book.count("item1"));
+        assertNull(book.highest("item1"));
+
+        // Lo mismo para un item que aún no tenía libro
+        long unseen = book.epoch("item9");
+        book.remove("item9");
+        assertFalse(book.add(new Offer("item9", "Eva", "eva@example.com", 5), unseen));
+        assertEquals(0, book.count("item9"));
+
+        assertTrue(book.add(new Offer("item1", "Sol", "sol@example.com", 7), book.epoch("item1")));
+        assertEquals(1, book.count("item1"));
+        assertEquals(1, book.top("item1", 10).size());
+    }
+}
@@ -0,0 +1,118 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Entrega no bloqueante: un cliente que no acepta datos no retiene hilos ni eventos
+ */
+class OfferHubTest {
+
+    /**
+     * Cliente que acepta datos solo cuando el test lo dice
+     */
+    static final class FakeClient implements OfferHub.Client {
+        final List<String> events = new CopyOnWriteArrayList<>();
+        volatile boolean ready;
+        volatile boolean refused;
+        volatile boolean closed;
+        volatile Runnable onWritable;
+
+        FakeClient(boolean ready) {
+            this.ready = ready;
+        }
+
+        @Override
+        public boolean send(String event) {
+            if (!ready) {
+                refused = true;
+                return false;
+            }
+            events.add(event);
+            return true;
+        }
+
+        @Override
+        public boolean ready() {
+            return ready;
+        }
+
+        @Override
+        public void onWritable(Runnable action) {
+            onWritable = action;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        void becomeWritable() {
+            ready = true;
+            onWritable.run();
+        }
+    }
+
+    private volatile int offerCount;
+
+    private OfferHub hub() {
+        return new OfferHub(itemId -> new OfferHub.Snapshot(itemId, offerCount, null));
+    }
+
+    @Test
+    void slowClientDoesNotDelayOthersAndGetsOnlyTheLatestState() throws Exception {
+        OfferHub hub = hub();
+        FakeClient slow = new FakeClient(false);
+        FakeClient fast = new FakeClient(true);
+        hub.subscribe("hub-1", slow);
+        hub.subscribe("hub-1", fast);
+
+        for (int i = 1; i <= 5; i++) {
+            offerCount = i;
+            hub.publish("hub-1");
+        }
+        await(() -> fast.events.stream().anyMatch(e -> e.contains("\"offerCount\":5")));
+        await(() -> slow.refused);
+        assertTrue(slow.events.isEmpty());
+
+        slow.becomeWritable();
+        await(() -> !slow.events.isEmpty());
+        Thread.sleep(100);
+        assertEquals(1, slow.events.size());
+        assertTrue(slow.events.get(0).contains("\"offerCount\":5"));
+    }
+
+    @Test
+    void clientBlockedTooLongIsDisconnected() throws Exception {
+        OfferHub hub = hub();
+        FakeClient stuck = new FakeClient(false);
+        FakeClient reading = new FakeClient(true);
+        hub.subscribe("hub-2", stuck);
+        hub.subscribe("hub-2", reading);
+        await(() -> stuck.refused);
+
+        hub.ping(System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5));
+        assertFalse(stuck.closed);
+
+        hub.ping(System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(2));
+        assertTrue(stuck.closed);
+        assertFalse(reading.closed);
+        assertEquals(1, hub.subscriberCount());
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timeout");
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Recuperación del registro de ofertas tras una escritura cortada al final del segmento
+ */
+class OfferLogTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void replaysEverythingAfterACleanClose() throws IOException {
+        try (OfferLog log = OfferLog.open(dir)) {
+            log.append(new Offer("item1", "Ana", "ana@example.com", 10));
+            log.append(new Offer("item2", "Luis", "luis@example.com", 20));
+        }
+
+        List<OfferLog.Entry> replayed = new ArrayList<>();
+        try (OfferLog log = OfferLog.open(dir)) {
+            assertEquals(2, log.replay(replayed::addAll));
+            assertEquals(0, log.replay(replayed::addAll));
+        }
+        assertEquals("item1", replayed.get(0).getOffer().getId());
+        assertEquals(20, replayed.get(1).getOffer().getAmount());
+    }
+
+    @Test
+    void recordWithBadChecksumAtTheTailIsDroppedAndOverwritten() throws IOException {
+        long torn;
+        try (OfferLog log = OfferLog.open(dir)) {
+            log.append(new Offer("item1", "Ana", "ana@example.com", 10));
+            log.append(new Offer("item2", "Luis", "luis@example.com", 20));
+            torn = log.append(new Offer("item3", "Eva", "eva@example.com", 30));
+        }
+        // Cuerpo a medias: el último byte del JSON no llegó a disco
+        long base = segmentBase();
+        try (FileChannel file = FileChannel.open(segment(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            int offset = (int) (torn - base);
+            int length = readInt(file, offset);
+            file.write(ByteBuffer.wrap(new byte[] {'#'}), offset + 8 + length - 1);
+        }
+
+        assertTornTailRecovered(torn);
+    }
+
+    @Test
+    void headerPointingPastTheSegmentIsTreatedAsTheEnd() throws IOException {
+        long torn;
+        try (OfferLog log = OfferLog.open(dir)) {
+            log.append(new Offer("item1", "Ana", "ana@example.com", 10));
+            log.append(new Offer("item2", "Luis", "luis@example.com", 20));
+            torn = log.append(new Offer("item3", "Eva", "eva@example.com", 30));
+        }
+        // Longitud corrupta mayor que el segmento
+        try (FileChannel file = FileChannel.open(segment(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(4).putInt(0, Integer.MAX_VALUE - 16);
+            file.write(header, torn - segmentBase());
+        }
+
+        assertTornTailRecovered(torn);
+    }
+
+    /**
+     * Tras reabrir: solo se reproducen los dos registros íntegros y la siguiente
+     * oferta se escribe donde empezaba el registro cortado
+     */
+    private void assertTornTailRecovered(long torn) throws IOException {
+        List<OfferLog.Entry> replayed = new ArrayList<>();
+        try (OfferLog log = OfferLog.open(dir)) {
+            assertEquals(2, log.replay(replayed::addAll));
+            assertEquals(torn, log.append(new Offer("item4", "Sol", "sol@example.com", 40)));
+            assertEquals(1, log.replay(replayed::addAll));
+        }
+        assertEquals(List.of("item1", "item2", "item4"),
+                replayed.stream().map(e -> e.getOffer().getId()).toList());
+        assertEquals(torn, replayed.get(2).getLogId());
+
+        // Y el registro sigue siendo legible tras otro reinicio
+        try (OfferLog log = OfferLog.open(dir)) {
+            assertEquals(0, log.replay(entries -> { }));
+        }
+    }
+
+    private Path segment() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(".log")).findFirst().orElseThrow();
+        }
+    }
+
+    private long segmentBase() throws IOException {
+        String name = segment().getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - 4));
+    }
+
+    private static int readInt(FileChannel file, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4);
+        file.read(buffer, position);
+        return buffer.getInt(0);
+    }
+}
@@ -0,0 +1,77 @@
+package org.example;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Paginación de ofertas: las semilla cuentan dentro del límite y nada se repite ni se pierde
+ */
+class OfferPageTest {
+
+    @BeforeAll
+    static void database() {
+        TestDatabase.init();
+    }
+
+    @Test
+    void pagesNeverExceedTheLimitAndCoverEveryOffer() {
+        OfferService offers = new OfferService();
+        new ItemService().add(new Item("page-1", "Reloj", "", "30"));
+        for (int i = 0; i < 5; i++) {
+            offers.add(new Offer("page-1", "Ana", "ana@example.com", 10 + i));
+        }
+        int total = offers.getAll().size();
+        assertTrue(total > 5);
+
+        for (int limit = 1; limit <= total + 1; limit++) {
+            List<String> seen = new ArrayList<>();
+            String cursor = null;
+            do {
+                Page<Offer> page = offers.getPage(cursor, limit);
+                assertTrue(page.getItems().size() <= limit, "limit " + limit);
+                for (Offer offer : page.getItems()) {
+                    seen.add(offer.getDbId() != null ? "db:" + offer.getDbId() : "seed:" + offer.getName() + offer.getAmount());
+                }
+                cursor = page.getNext();
+            } while (cursor != null);
+
+            assertEquals(total, seen.size(), "limit " + limit);
+            Set<String> distinct = new HashSet<>(seen);
+            assertEquals(seen.size(), distinct.size(), "limit " + limit);
+        }
+    }
+
+    @Test
+    void firstPageSmallerThanTheSeedsHasANextCursor() {
+        OfferService offers = new OfferService();
+        Page<Offer> page = offers.getPage(null, 1);
+        assertEquals(1, page.getItems().size());
+        assertNotNull(page.getNext());
+    }
+
+    @Test
+    void lastPageHasNoCursor() {
+        OfferService offers = new OfferService();
+        Page<Offer> page = offers.getPage(null, Page.MAX_LIMIT);
+        assertNull(page.getNext());
+    }
+
+    @Test
+    void malformedSeedCursorIsRejected() {
+        OfferService offers = new OfferService();
+        String cursor = Page.encodeCursor(new Timestamp(0), "seed:x");
+        assertThrows(IllegalArgumentException.class, () -> offers.getPage(cursor, 10));
+    }
+}
@@ -0,0 +1,42 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * Recarga de ofertas.json cuando el archivo cambia
+ */
+class OfferSeedsTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void reloadedSeedFileChangesTheETag() throws Exception {
+        Path file = dir.resolve("ofertas.json");
+        Files.writeString(file, "[{\"id\": \"seed-a\", \"name\": \"Ana\", \"email\": \"ana@example.com\", \"amount\": 10.0}]");
+        OfferService offers = new OfferService(file.toUri().toURL(), 0);
+        offers.refreshSeeds();
+
+        String before = ConditionalGet.etag(CatalogVersions.offers("seed-a"));
+        String gained = ConditionalGet.etag(CatalogVersions.offers("seed-b"));
+        String untouched = ConditionalGet.etag(CatalogVersions.offers("seed-c"));
+        String allBefore = ConditionalGet.etag(CatalogVersions.offers());
+
+        Files.writeString(file, "[{\"id\": \"seed-b\", \"name\": \"Ana\", \"email\": \"ana@example.com\", \"amount\": 20.0}]");
+        file.toFile().setLastModified(file.toFile().lastModified() + 5_000);
+        offers.refreshSeeds();
+
+        // El item que perdió su semilla y el que la ganó cambian; el resto no
+        assertNotEquals(before, ConditionalGet.etag(CatalogVersions.offers("seed-a")));
+        assertNotEquals(gained, ConditionalGet.etag(CatalogVersions.offers("seed-b")));
+        assertEquals(untouched, ConditionalGet.etag(CatalogVersions.offers("seed-c")));
+        assertNotEquals(allBefore, ConditionalGet.etag(CatalogVersions.offers()));
+    }
+}
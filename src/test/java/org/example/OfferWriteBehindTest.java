@@ -0,0 +1,69 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Apagado de la escritura diferida con envíos en curso
+ */
+class OfferWriteBehindTest {
+
+    /**
+     * Servicio que solo cuenta las ofertas escritas
+     */
+    static final class CountingService extends OfferService {
+        final LongAdder stored = new LongAdder();
+
+        @Override
+        public List<BulkImport.Result> addAll(List<Offer> offers) {
+            List<BulkImport.Result> results = new ArrayList<>(offers.size());
+            for (Offer offer : offers) {
+                stored.increment();
+                results.add(BulkImport.Result.created(offer.getId()));
+            }
+            return results;
+        }
+    }
+
+    @Test
+    void everyAcceptedOfferIsWrittenWhenShuttingDownDuringSubmits() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            CountingService service = new CountingService();
+            OfferWriteBehind writeBehind = new OfferWriteBehind(service, 100_000, 50, 0);
+            writeBehind.start();
+
+            AtomicInteger acceptedIds = new AtomicInteger();
+            CountDownLatch started = new CountDownLatch(4);
+            List<Thread> submitters = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                Thread submitter = new Thread(() -> {
+                    started.countDown();
+                    for (int i = 0; i < 5_000; i++) {
+                        if (writeBehind.submit(new Offer("item1", "Ana", "ana@example.com", i)) != null) {
+                            acceptedIds.incrementAndGet();
+                        }
+                    }
+                });
+                submitter.start();
+                submitters.add(submitter);
+            }
+            started.await();
+            writeBehind.shutdown(10_000);
+            for (Thread submitter : submitters) {
+                submitter.join();
+            }
+
+            assertEquals(acceptedIds.get(), service.stored.sum());
+            assertEquals(0, writeBehind.stats().get("queued"));
+            assertNull(writeBehind.submit(new Offer("item1", "Luis", "luis@example.com", 1)));
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package org.example;
+
+import org.eclipse.jetty.server.handler.gzip.GzipHandler;
+import org.junit.jupiter.api.Test;
+import spark.Request;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * ETag y 304 de los recursos de /assets según la codificación
+ */
+class StaticAssetsTest {
+
+    /**
+     * Petición a una ruta con las cabeceras y atributos indicados
+     */
+    static final class AssetRequest extends Request {
+        private final String path;
+        private final Map<String, String> headers = new HashMap<>();
+        private final Map<String, Object> attributes = new HashMap<>();
+
+        AssetRequest(String path) {
+            this.path = path;
+        }
+
+        AssetRequest header(String name, String value) {
+            headers.put(name, value);
+            return this;
+        }
+
+        AssetRequest attribute(String name, String value) {
+            attributes.put(name, value);
+            return this;
+        }
+
+        @Override
+        public String pathInfo() {
+            return path;
+        }
+
+        @Override
+        public String headers(String header) {
+            return headers.get(header);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T attribute(String name) {
+            return (T) attributes.get(name);
+        }
+    }
+
+    /**
+     * Respuesta con estado, cabeceras y cuerpo en memoria
+     */
+    static final class AssetResponse extends ViewsTest.BodyResponse {
+        final Map<String, String> headers = new HashMap<>();
+        int status = 200;
+
+        @Override
+        public void header(String header, String value) {
+            headers.put(header, value);
+        }
+
+        @Override
+        public void status(int statusCode) {
+            status = statusCode;
+        }
+    }
+
+    private static final StaticAssets assets = StaticAssets.load("public");
+    private static final String CSS = assets.urls().get("styles_css");
+
+    private static AssetResponse get(AssetRequest req) throws Exception {
+        AssetResponse res = new AssetResponse();
+        assets.serve(req, res);
+        return res;
+    }
+
+    @Test
+    void gzipAndIdentityHaveDifferentETags() throws Exception {
+        AssetResponse identity = get(new AssetRequest(CSS));
+        AssetResponse gzip = get(new AssetRequest(CSS).header("Accept-Encoding", "gzip, br"));
+
+        assertEquals("gzip", gzip.headers.get("Content-Encoding"));
+        assertNotEquals(identity.headers.get("ETag"), gzip.headers.get("ETag"));
+
+        // Cada ETag solo valida su propia codificación
+        assertEquals(304, get(new AssetRequest(CSS).header("If-None-Match", identity.headers.get("ETag"))).status);
+        assertEquals(200, get(new AssetRequest(CSS).header("If-None-Match", gzip.headers.get("ETag"))).status);
+        assertEquals(200, get(new AssetRequest(CSS).header("Accept-Encoding", "gzip")
+                .header("If-None-Match", identity.headers.get("ETag"))).status);
+
+        // Jetty deja en If-None-Match la ETag sin "--gzip" y el original en un atributo
+        String gzipEtag = gzip.headers.get("ETag");
+        AssetRequest revalidate = new AssetRequest(CSS).header("Accept-Encoding", "gzip")
+                .header("If-None-Match", gzipEtag.replace("--gzip", ""))
+                .attribute(GzipHandler.GZIP_HANDLER_ETAGS, gzipEtag);
+        assertEquals(304, get(revalidate).status);
+    }
+
+    @Test
+    void ifNoneMatchIsAListOfTagsNotASubstring() throws Exception {
+        String etag = get(new AssetRequest(CSS)).headers.get("ETag");
+        String inner = etag.substring(1, etag.length() - 1);
+
+        assertEquals(200, get(new AssetRequest(CSS).header("If-None-Match", "\"x" + inner + "x\"")).status);
+        assertEquals(304, get(new AssetRequest(CSS).header("If-None-Match", "\"otra\", " + etag)).status);
+        assertEquals(304, get(new AssetRequest(CSS).header("If-None-Match", "*")).status);
+    }
+}
@@ -0,0 +1,19 @@
+package org.example;
+
+/**
+ * H2 en memoria compartida por todas las pruebas que usan los servicios (se inicializa una vez)
+ */
+final class TestDatabase {
+    private static boolean initialized;
+
+    private TestDatabase() {
+    }
+
+    static synchronized void init() {
+        if (!initialized) {
+            DatabaseManager.init("jdbc:h2:mem:reto6-test;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;"
+                    + "DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1", "sa", "");
+            initialized = true;
+        }
+    }
+}
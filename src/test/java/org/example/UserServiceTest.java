@@ -0,0 +1,56 @@
+package org.example;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Altas condicionales: un id repetido no escribe nada y un email repetido es un error distinto
+ */
+class UserServiceTest {
+
+    @BeforeAll
+    static void database() {
+        TestDatabase.init();
+    }
+
+    @Test
+    void existingIdIsNotOverwritten() {
+        UserService users = new UserService();
+        assertTrue(users.add(new User("usr-1", "Ana", "ana.usr1@example.com")));
+        assertFalse(users.add(new User("usr-1", "Otra", "otra.usr1@example.com")));
+        assertEquals("Ana", users.get("usr-1").getName());
+    }
+
+    @Test
+    void newIdWithATakenEmailIsRejectedAsEmailConflict() {
+        UserService users = new UserService();
+        assertTrue(users.add(new User("usr-2", "Luis", "luis.usr2@example.com")));
+
+        assertThrows(UserService.EmailTakenException.class,
+                () -> users.add(new User("usr-3", "Luis bis", "luis.usr2@example.com")));
+        assertNull(users.get("usr-3"));
+    }
+
+    @Test
+    void updateToATakenEmailIsRejectedAsEmailConflict() {
+        UserService users = new UserService();
+        assertTrue(users.add(new User("usr-4", "Eva", "eva.usr4@example.com")));
+        assertTrue(users.add(new User("usr-5", "Sol", "sol.usr5@example.com")));
+
+        assertThrows(UserService.EmailTakenException.class,
+                () -> users.update("usr-5", new User("usr-5", "Sol", "eva.usr4@example.com")));
+        assertEquals("sol.usr5@example.com", users.get("usr-5").getEmail());
+    }
+
+    @Test
+    void postgresKeepsTheConflictTarget() {
+        assertEquals("INSERT INTO users (id, name, email) VALUES (?, ?, ?) ON CONFLICT (id) DO NOTHING",
+                StorageMode.POSTGRES.insertIfAbsent("users", "id", "id", "name", "email"));
+    }
+}
@@ -0,0 +1,97 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import spark.Response;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Proxy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Páginas HTML guardadas ya renderizadas
+ */
+class ViewsTest {
+
+    /**
+     * Respuesta que guarda en memoria lo que se escribe en el cuerpo
+     */
+    static class BodyResponse extends Response {
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        @Override
+        public void type(String contentType) {
+        }
+
+        @Override
+        public HttpServletResponse raw() {
+            ServletOutputStream out = new ServletOutputStream() {
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setWriteListener(WriteListener listener) {
+                }
+
+                @Override
+                public void write(int b) {
+                    body.write(b);
+                }
+            };
+            return (HttpServletResponse) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[] {HttpServletResponse.class},
+                    (proxy, method, args) -> method.getName().equals("getOutputStream") ? out : null);
+        }
+    }
+
+    private static final StaticAssets assets = StaticAssets.load("public");
+
+    private static int pages(Views views) {
+        return (Integer) views.stats().get("pages");
+    }
+
+    private static long renders(Views views) {
+        return (Long) views.stats().get("renders");
+    }
+
+    private static void show(Views views, String key) throws Exception {
+        views.cached(new BodyResponse(), key, "v1", views.offersList, () -> new Object[0]);
+    }
+
+    @Test
+    void leastRecentlyUsedPageIsDroppedWhenFull() throws Exception {
+        Views views = new Views(assets, 2);
+        show(views, "a");
+        show(views, "b");
+        show(views, "a");
+        show(views, "c");
+        assertEquals(2, pages(views));
+        assertEquals(3, renders(views));
+
+        // "a" se usó después de "b": sigue guardada y "b" se vuelve a renderizar
+        show(views, "a");
+        assertEquals(3, renders(views));
+        show(views, "b");
+        assertEquals(4, renders(views));
+    }
+
+    @Test
+    void evictedPageIsRenderedAgain() throws Exception {
+        Views views = new Views(assets, 10);
+        BodyResponse first = new BodyResponse();
+        views.cached(first, "item:v-1", "v1", views.offersList, () -> new Object[0]);
+
+        views.evict("item:v-1");
+        assertEquals(0, pages(views));
+
+        BodyResponse second = new BodyResponse();
+        views.cached(second, "item:v-1", "v1", views.offersList, () -> new Object[0]);
+        assertEquals(2, renders(views));
+        assertEquals(first.body.toString(), second.body.toString());
+    }
+}